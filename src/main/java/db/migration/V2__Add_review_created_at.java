@@ -0,0 +1,32 @@
+package db.migration;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+/**
+ * Databases from before reviews had a creation time lack {@code created_at},
+ * which Hibernate used to add on startup. SQLite has no
+ * {@code ADD COLUMN IF NOT EXISTS}, hence a Java migration. Existing reviews
+ * get the epoch, so they never count as recent.
+ */
+public class V2__Add_review_created_at extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        try (Statement statement = context.getConnection().createStatement()) {
+            boolean exists = false;
+            try (ResultSet columns = statement.executeQuery("PRAGMA table_info(reviews)")) {
+                while (columns.next()) {
+                    exists |= "created_at".equals(columns.getString("name"));
+                }
+            }
+            if (!exists) {
+                statement.execute("ALTER TABLE reviews ADD COLUMN created_at timestamp not null default '1970-01-01T00:00'");
+            }
+        }
+    }
+}
@@ -2,12 +2,19 @@ package moro.bookapi;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
 
 @SpringBootApplication
 public class BookapiApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(BookapiApplication.class, args);
+		ConfigurableApplicationContext context = SpringApplication.run(BookapiApplication.class, args);
+
+		// Training run for the class data sharing archive (see Dockerfile):
+		// every class needed to start has been loaded by now
+		if (Boolean.getBoolean("bookapi.exit-after-startup")) {
+			System.exit(SpringApplication.exit(context));
+		}
 	}
 
 }
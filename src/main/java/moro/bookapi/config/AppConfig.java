@@ -1,14 +1,46 @@
 package moro.bookapi.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import moro.bookapi.gutendex.WarmupProperties;
+import moro.bookapi.search.PrefetchProperties;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 @Configuration
+@EnableScheduling
+@EnableConfigurationProperties({ WarmupProperties.class, PrefetchProperties.class })
 public class AppConfig {
 
     @Bean
     public RestTemplate restTemplate() {
         return new RestTemplate();
     }
-}
\ No newline at end of file
+
+    @Bean
+    public WebClient webClient(WebClient.Builder builder) {
+        // Gutendex pages carry full format lists, so allow more than the 256KB default
+        return builder
+                .baseUrl("https://gutendex.com")
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(2 * 1024 * 1024))
+                .build();
+    }
+
+    /**
+     * JDBC is blocking, so the streaming endpoints hop onto this scheduler for
+     * database work. It is bounded because SQLite gains nothing from more
+     * concurrent readers than we have cores.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler jdbcScheduler(
+            @Value("${bookapi.jdbc-scheduler.threads:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int threads,
+            @Value("${bookapi.jdbc-scheduler.queue-size:1000}") int queueSize) {
+        return Schedulers.newBoundedElastic(threads, queueSize, "jdbc");
+    }
+}
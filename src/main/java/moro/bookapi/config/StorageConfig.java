@@ -0,0 +1,93 @@
+package moro.bookapi.config;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import moro.bookapi.storage.CachedReviewStore;
+import moro.bookapi.storage.JdbcReviewStore;
+import moro.bookapi.storage.LoggedReviewStore;
+import moro.bookapi.storage.ReviewChangeFeed;
+import moro.bookapi.storage.ReviewLog;
+import moro.bookapi.storage.ReviewStore;
+import moro.bookapi.storage.ShardedReviewStore;
+import moro.bookapi.storage.SqliteDatabase;
+import moro.bookapi.storage.SqliteShards;
+import moro.bookapi.storage.StorageProperties;
+
+@Configuration
+@EnableConfigurationProperties(StorageProperties.class)
+public class StorageConfig {
+
+    @Bean(destroyMethod = "close")
+    public SqliteShards reviewShards(@Value("${spring.datasource.url}") String url, StorageProperties properties) {
+        return new SqliteShards(url, properties);
+    }
+
+    /**
+     * The writer of shard 0 (the configured database file). Primary so that
+     * anything auto-configured against "the" DataSource (health checks, for
+     * instance) goes through the writer.
+     */
+    @Bean
+    @Primary
+    public DataSource writeDataSource(SqliteShards reviewShards) {
+        return reviewShards.get(0).getWriteDataSource();
+    }
+
+    @Bean
+    public ReviewStore reviewStore(SqliteShards reviewShards, StorageProperties properties) throws IOException {
+        StorageProperties.Log log = properties.getLog();
+        if (properties.getNodeId() == null) {
+            // The log's checkpoint is kept per node id, which then has to survive restarts
+            properties.setNodeId(log.isEnabled()
+                    ? ReviewLog.nodeId(Path.of(log.getDirectory()))
+                    : UUID.randomUUID().toString());
+        }
+
+        ReviewStore store;
+        if (reviewShards.size() == 1) {
+            store = new JdbcReviewStore(reviewShards.get(0), properties.getNodeId());
+        } else {
+            List<JdbcReviewStore> shards = new ArrayList<>();
+            for (SqliteDatabase database : reviewShards.all()) {
+                shards.add(new JdbcReviewStore(database, properties.getNodeId()));
+            }
+            store = new ShardedReviewStore(shards);
+        }
+
+        if (log.isEnabled()) {
+            ReviewLog reviewLog = new ReviewLog(Path.of(log.getDirectory()),
+                    Math.toIntExact(log.getSegmentSize().toBytes()), store.getLogCheckpoint());
+            store = new LoggedReviewStore(store, reviewLog, log.getCompactionInterval(), log.getCompactionBatchSize());
+        }
+
+        StorageProperties.ReviewCache reviewCache = properties.getReviewCache();
+        if (reviewCache.isEnabled()) {
+            store = new CachedReviewStore(store, reviewCache.getMaxSize().toBytes(),
+                    Math.toIntExact(reviewCache.getBlockSize().toBytes()));
+        }
+        return store;
+    }
+
+    /**
+     * Depends on the review store so the shards are migrated and the node id
+     * is settled first. The
+     * aggregates built from the reviews table at startup depend on this bean
+     * in turn, so the feed's high-water marks are taken before they read.
+     */
+    @Bean
+    public ReviewChangeFeed reviewChangeFeed(SqliteShards reviewShards, ReviewStore reviewStore, StorageProperties properties) {
+        return new ReviewChangeFeed(reviewShards, properties.getNodeId());
+    }
+}
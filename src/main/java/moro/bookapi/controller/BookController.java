@@ -2,24 +2,20 @@ package moro.bookapi.controller;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Set;
 
-import org.springframework.boot.json.JsonParser;
-import org.springframework.boot.json.JsonParserFactory;
-import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.RowMapper;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
@@ -32,19 +28,41 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
-import moro.bookapi.model.AuthorDto;
+import moro.bookapi.gutendex.GutendexClient;
+import moro.bookapi.gutendex.GutendexMapper;
 import moro.bookapi.model.BookDto;
 import moro.bookapi.model.RatingDto;
+import moro.bookapi.model.RatingStatsDto;
+import moro.bookapi.model.ReviewDto;
+import moro.bookapi.model.TrendingBookDto;
+import moro.bookapi.search.SearchPagePrefetcher;
+import moro.bookapi.stats.RatingHistograms;
+import moro.bookapi.stats.TrendingCounters;
+import moro.bookapi.stats.TrendingWindow;
+import moro.bookapi.storage.BookRating;
+import moro.bookapi.storage.ReviewStore;
 
 
 @RestController
 public class BookController {
-    private final JdbcTemplate jdbcTemplate;
+    private static final int MAX_RATING_STATS_IDS = 100;
+    private static final int MAX_LOOKUP_IDS = 500;
+
+    private final ReviewStore reviewStore;
     private final RestTemplate restTemplate;
+    private final RatingHistograms ratingHistograms;
+    private final TrendingCounters trendingCounters;
+    private final GutendexClient gutendexClient;
+    private final SearchPagePrefetcher searchPagePrefetcher;
 
-    public BookController(JdbcTemplate jdbcTemplate, RestTemplate restTemplate) {
-        this.jdbcTemplate = jdbcTemplate;
+    public BookController(ReviewStore reviewStore, RestTemplate restTemplate, RatingHistograms ratingHistograms,
+            TrendingCounters trendingCounters, GutendexClient gutendexClient, SearchPagePrefetcher searchPagePrefetcher) {
+        this.reviewStore = reviewStore;
         this.restTemplate = restTemplate;
+        this.ratingHistograms = ratingHistograms;
+        this.trendingCounters = trendingCounters;
+        this.gutendexClient = gutendexClient;
+        this.searchPagePrefetcher = searchPagePrefetcher;
     }
     @GetMapping(value = "/search", produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(summary = "Search books", description = "Search for books by title")
@@ -68,86 +86,70 @@ public class BookController {
             return Collections.singletonMap("error", "Page number must be a positive integer");
         }
 
+        Map<String, Object> responseMap = searchPagePrefetcher.take(title, page);
+        if (responseMap == null) {
+            try {
+                responseMap = loadSearchPage(title, page);
+            } catch (RestClientException e) {
+                // handle the exception
+                return Collections.singletonMap("error", "An error occurred while fetching the books: " + e.getMessage());
+            }
+        }
+
+        searchPagePrefetcher.served(title, page, responseMap.get("next") != null, () -> loadSearchPage(title, page + 1));
+        return responseMap;
+    }
+
+    private Map<String, Object> loadSearchPage(String title, int page) {
         String encodedTitle = URLEncoder.encode(title, StandardCharsets.UTF_8);
-        String url = "https://gutendex.com/books?search=" + encodedTitle;
+        String url = "https://gutendex.com/books?search=" + encodedTitle + "&page=" + page;
 
-        try {
-            // Make the API call and get the response as a Map
-            String resp = restTemplate.getForObject(url, String.class);
-            JsonParser springParser = JsonParserFactory.getJsonParser();
-            Map<String, Object> map = springParser.parseMap(resp);
-
-            // Extract the relevant information from the response
-            List<Map<String, Object>> results = (List<Map<String, Object>>) map.get("results");
-
-            // Create a new map with paginated and filtered results
-            Map<String, Object> responseMap = new HashMap<>();
-            responseMap.put("count", map.get("count"));
-            responseMap.put("next", map.get("next"));
-            responseMap.put("previous", map.get("previous"));
-            responseMap.put("results", extractBooks(results));
-
-            return responseMap;
-        } catch (RestClientException e) {
-            // handle the exception
-            return Collections.singletonMap("error", "An error occurred while fetching the books: " + e.getMessage());
-        }
+        // Make the API call and get the response as a Map
+        String resp = restTemplate.getForObject(url, String.class);
+        Map<String, Object> map = GutendexMapper.parse(resp);
+
+        // Extract the relevant information from the response
+        List<Map<String, Object>> results = GutendexMapper.results(map);
+
+        // Create a new map with paginated and filtered results
+        Map<String, Object> responseMap = new HashMap<>();
+        responseMap.put("count", map.get("count"));
+        responseMap.put("next", map.get("next"));
+        responseMap.put("previous", map.get("previous"));
+        responseMap.put("results", extractBooks(results));
+        return responseMap;
     }
 
     private List<BookDto> extractBooks(List<Map<String, Object>> results) {
         List<BookDto> books = new ArrayList<>();
         for (Map<String, Object> result : results) {
-            BookDto bookDto = new BookDto();
-                bookDto.setId((int) result.get("id"));
-                bookDto.setTitle((String) result.get("title"));
-                bookDto.setAuthors(extractAuthors(result));
-                bookDto.setLanguages((List<String>) result.get("languages"));
-                bookDto.setDownloadCount((int) result.get("download_count"));
-                // Fetch and set reviews for this book
-                int bookId = (int) result.get("id");
-                embedReviewDetailsInBook(bookDto, bookId);
-                books.add(bookDto);
+            BookDto bookDto = GutendexMapper.toBookDto(result);
+            // Fetch and set reviews for this book
+            embedReviewDetailsInBook(bookDto, (int) bookDto.getId());
+            books.add(bookDto);
         }
         return books;
     }
 
 
     private void embedReviewDetailsInBook(BookDto bookDto, int bookId) {
-        String sql = "SELECT review_text, rating FROM reviews WHERE book_id = ?";
+        embedReviewDetailsInBook(bookDto, reviewStore.findByBookId(bookId));
+    }
 
+    static void embedReviewDetailsInBook(BookDto bookDto, List<ReviewDto> reviews) {
         List<String> reviewTexts = new ArrayList<>();
-        AtomicInteger totalRating = new AtomicInteger(0);
-        AtomicInteger reviewCount = new AtomicInteger(0);
+        int totalRating = 0;
 
-        jdbcTemplate.query(sql, ps -> ps.setInt(1, bookId), (rs, rowNum) -> {
-            reviewTexts.add(rs.getString("review_text"));
-            totalRating.addAndGet(rs.getInt("rating"));
-            reviewCount.incrementAndGet();
-            return null;
-        });
+        for (ReviewDto review : reviews) {
+            reviewTexts.add(review.getReviewText());
+            totalRating += review.getRating();
+        }
 
         // Set average rating and review texts in bookDto
-        double averageRating = reviewCount.get() > 0 ? (double) totalRating.get() / reviewCount.get() : 0;
+        double averageRating = reviews.size() > 0 ? (double) totalRating / reviews.size() : 0;
         bookDto.setRating(averageRating);
         bookDto.setReviews(reviewTexts);
     }
-    
-    private List<AuthorDto> extractAuthors(Map<String, Object> result) {
-        List<Map<String, Object>> authors = (List<Map<String, Object>>) result.get("authors");
-        List<AuthorDto> authorDtos = new ArrayList<>();
-
-        for (Map<String, Object> author : authors) {
-            AuthorDto authorDto = new AuthorDto();
-            authorDto.setName((String) author.get("name"));
-            // Check for null before trying to access the Integer values
-            authorDto.setBirthYear(author.get("birth_year") != null ? ((Integer) author.get("birth_year")) : null);
-            authorDto.setDeathYear(author.get("death_year") != null ? ((Integer) author.get("death_year")) : null);
-            
-            authorDtos.add(authorDto);
-        }
-
-        return authorDtos;
-    }
 
     @GetMapping(value = "/search/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(summary = "Get book by ID", description = "Retrieve a book and its details by ID")
@@ -156,14 +158,14 @@ public class BookController {
                      mediaType = "application/json", 
                      schema = @Schema(implementation = BookDto.class)))
     public BookDto getBookById(@PathVariable("id") int bookId) {
-        String url = "https://gutendex.com/books?ids=" + String.valueOf(bookId);
         try {
-            String resp = restTemplate.getForObject(url, String.class);
-            JsonParser springParser = JsonParserFactory.getJsonParser();
-            Map<String, Object> map = springParser.parseMap(resp);
-           // Extract the relevant information from the response
-            List<Map<String, Object>> results = (List<Map<String, Object>>) map.get("results");
-            return extractBooks(results).get(0);
+            // Served from the metadata cache when the book was looked up or warmed up before
+            BookDto book = gutendexClient.findBooks(List.of((long) bookId)).get((long) bookId);
+            if (book == null) {
+                throw new IllegalArgumentException("Book " + bookId + " not found");
+            }
+            embedReviewDetailsInBook(book, bookId);
+            return book;
 
         } catch (Exception e) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred ", e);
@@ -171,6 +173,73 @@ public class BookController {
     }
 
 
+    @GetMapping(value = "/books", params = "ids", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Get books by IDs", description = "Retrieve several books with their average rating in one call")
+    @ApiResponse(responseCode = "200", description = "Successful response",
+                 content = @Content(
+                     mediaType = "application/json",
+                     schema = @Schema(implementation = Map.class),
+                     examples = @ExampleObject(
+                         name = "Example Bulk Lookup Response",
+                         summary = "Example response for a bulk book lookup",
+                         value = "{\"books\": [{\"id\": 1342, \"title\": \"Pride and Prejudice\", \"authors\": [{\"name\": \"Austen, Jane\", \"birthYear\": 1775, \"deathYear\": 1817}], " +
+                                 "\"languages\": [\"en\"], \"downloadCount\": 60000, \"rating\": 4.5, \"reviews\": null}], \"notFound\": [999999]}"
+                     )
+                 ))
+    public Map<String, Object> getBooksByIds(@RequestParam(value = "ids") List<Long> bookIds) {
+        return lookupBooks(bookIds);
+    }
+
+    @PostMapping(value = "/books", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Get books by IDs", description = "Same as GET /books?ids=, for ID lists too long for a URL")
+    public Map<String, Object> postBooksByIds(@RequestBody List<Long> bookIds) {
+        return lookupBooks(bookIds);
+    }
+
+    private Map<String, Object> lookupBooks(List<Long> requestedIds) {
+        requirePositiveIds(requestedIds);
+        // Duplicates are answered once, in the position of their first occurrence
+        Set<Long> bookIds = new LinkedHashSet<>(requestedIds);
+        if (bookIds.isEmpty() || bookIds.size() > MAX_LOOKUP_IDS) {
+            return Collections.singletonMap("error", "Between 1 and " + MAX_LOOKUP_IDS + " book IDs are required");
+        }
+
+        Map<Long, BookDto> found;
+        try {
+            found = gutendexClient.findBooks(bookIds);
+        } catch (RestClientException e) {
+            return Collections.singletonMap("error", "An error occurred while fetching the books: " + e.getMessage());
+        }
+        Map<Long, BookRating> ratings = reviewStore.findRatings(found.keySet());
+
+        List<BookDto> books = new ArrayList<>();
+        List<Long> notFound = new ArrayList<>();
+        for (Long bookId : bookIds) {
+            BookDto book = found.get(bookId);
+            if (book == null) {
+                notFound.add(bookId);
+                continue;
+            }
+            BookRating rating = ratings.get(bookId);
+            book.setRating(rating != null ? rating.averageRating() : 0);
+            books.add(book);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("books", books);
+        response.put("notFound", notFound);
+        return response;
+    }
+
+    // An empty entry in an id list (ids=1,,2) binds to null
+    private static void requirePositiveIds(List<Long> bookIds) {
+        for (Long bookId : bookIds) {
+            if (bookId == null || bookId <= 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Book IDs must be positive integers");
+            }
+        }
+    }
+
     @ApiResponse(responseCode = "200", description = "Successful response", 
             content = @Content(
                 mediaType = "application/json", 
@@ -211,43 +280,64 @@ public class BookController {
             return Collections.singletonMap("error", "Number must be a positive integer");
         }
     
-        String sql = "SELECT book_id, AVG(rating) as average_rating " +
-                     "FROM reviews GROUP BY book_id ORDER BY average_rating DESC LIMIT ?";
-    
-        RowMapper<BookDto> rowMapper = (rs, rowNum) -> {
-            BookDto book = new BookDto();
-            book.setId(rs.getInt("book_id"));
-            // Fetch book details from the Gutendex API or another source as needed
-            fetchBookDetails(book);
-            book.setRating(rs.getDouble("average_rating")); // Setting the average rating
-            return book;
-        };
-    
-        List<BookDto> topBooks = jdbcTemplate.query(sql, rowMapper, n);
+        List<BookRating> ratings = reviewStore.findTopRated(n);
+        List<Long> bookIds = new ArrayList<>();
+        for (BookRating rating : ratings) {
+            bookIds.add(rating.bookId());
+        }
+        Map<Long, BookDto> details;
+        try {
+            // Fetch book details for the whole ranking at once, mostly from the cache
+            details = gutendexClient.findBooks(bookIds);
+        } catch (RestClientException e) {
+            // Still return the ranking, just without details
+            details = Collections.emptyMap();
+        }
+
+        List<BookDto> topBooks = new ArrayList<>();
+        for (BookRating rating : ratings) {
+            BookDto book = details.get(rating.bookId());
+            if (book == null) {
+                book = new BookDto();
+                book.setId(rating.bookId());
+            }
+            book.setRating(rating.averageRating()); // Setting the average rating
+            topBooks.add(book);
+        }
     
         Map<String, Object> response = new HashMap<>();
         response.put("books", topBooks);
         return response;
     }
-    
-    private void fetchBookDetails(BookDto book) {
-        String url = "https://gutendex.com/books?ids=" + book.getId();
-    
-        try {
-            String resp = restTemplate.getForObject(url, String.class);
-            JsonParser jsonParser = JsonParserFactory.getJsonParser();
-            Map<String, Object> responseMap = jsonParser.parseMap(resp);
-    
-            List<Map<String, Object>> results = (List<Map<String, Object>>) responseMap.get("results");
-            if (results != null && !results.isEmpty()) {
-                Map<String, Object> bookData = results.get(0); // Get the first book's details
-    
-                book.setTitle((String) bookData.get("title"));
-                book.setLanguages((List<String>) bookData.get("languages"));
-                book.setAuthors(extractAuthors(bookData));
-            }
-        } catch (RestClientException e) {
+
+    @GetMapping(value = "/trending", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Get trending books", description = "Get the N most reviewed books within the last 24h, 7d or 30d")
+    @ApiResponse(responseCode = "200", description = "Successful response",
+                 content = @Content(
+                     mediaType = "application/json",
+                     schema = @Schema(implementation = Map.class),
+                     examples = @ExampleObject(
+                         name = "Example Trending Response",
+                         summary = "Example response for trending books",
+                         value = "{\"window\": \"7d\", \"books\": [{\"bookId\": 1, \"reviewCount\": 12, \"averageRating\": 4.25}]}"
+                     )
+                 ))
+    public Map<String, Object> getTrendingBooks(
+            @RequestParam(value = "window", defaultValue = "24h") String window,
+            @RequestParam(value = "n", defaultValue = "10") int n) {
+        TrendingWindow trendingWindow = TrendingWindow.from(window);
+        if (trendingWindow == null) {
+            return Collections.singletonMap("error", "Window must be one of 24h, 7d or 30d");
         }
+        if (n <= 0) {
+            return Collections.singletonMap("error", "Number must be a positive integer");
+        }
+
+        List<TrendingBookDto> books = trendingCounters.top(trendingWindow, n);
+        Map<String, Object> response = new HashMap<>();
+        response.put("window", trendingWindow.label());
+        response.put("books", books);
+        return response;
     }
 
     @ApiResponse(responseCode = "200", description = "Successful response", 
@@ -272,25 +362,8 @@ public class BookController {
     @GetMapping(value = "/averageRatingPerMonth", produces = MediaType.APPLICATION_JSON_VALUE)
     @Operation(summary = "Get average rating per month for a book", description = "Returns the average rating per month for a given book ID")
     public Map<String, Object> getAverageRatingPerMonth(@RequestParam(value = "bookId") int bookId) {
-        String sql = "SELECT strftime('%Y', created_at) as year, strftime('%m', created_at) as month, AVG(rating) as average_rating " +
-        "FROM reviews " +
-        "WHERE book_id = ? " +
-        "GROUP BY strftime('%Y', created_at), strftime('%m', created_at) " +
-        "ORDER BY year, month";
-
         try {
-            RowMapper<RatingDto> rowMapper = new RowMapper<RatingDto>() {
-                @Override
-                public RatingDto mapRow(ResultSet rs, int rowNum) throws SQLException {
-                    RatingDto monthlyRating = new RatingDto();
-                    monthlyRating.setYear(rs.getInt("year"));
-                    monthlyRating.setMonth(rs.getInt("month"));
-                    monthlyRating.setAverageRating(rs.getDouble("average_rating"));
-                    return monthlyRating;
-                }
-            };
-
-            List<RatingDto> monthlyRatings = jdbcTemplate.query(sql, rowMapper, bookId);
+            List<RatingDto> monthlyRatings = reviewStore.findAverageRatingPerMonth(bookId);
 
             if (monthlyRatings.isEmpty()) {
                 return Collections.singletonMap("message", "No ratings found for the given book ID");
@@ -305,7 +378,38 @@ public class BookController {
         }
     }
 
+    @GetMapping(value = "/books/{id}/ratingStats", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Get rating statistics for a book",
+               description = "Returns the star histogram, review count, mean, median and percentiles of a book's ratings")
+    @ApiResponse(responseCode = "200", description = "Successful response",
+                 content = @Content(
+                     mediaType = "application/json",
+                     schema = @Schema(implementation = RatingStatsDto.class),
+                     examples = @ExampleObject(
+                         name = "Example Rating Stats Response",
+                         summary = "Example response for rating stats",
+                         value = "{\"bookId\": 1, \"reviewCount\": 4, \"mean\": 3.75, \"median\": 3.5, " +
+                                 "\"percentiles\": {\"p25\": 3, \"p50\": 3, \"p75\": 4, \"p90\": 5}, " +
+                                 "\"histogram\": [0, 0, 0, 2, 1, 1]}"
+                     )
+                 ))
+    public RatingStatsDto getRatingStats(@PathVariable("id") long bookId) {
+        return ratingHistograms.stats(bookId);
+    }
 
-    
-}
+    @GetMapping(value = "/books/ratingStats", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Get rating statistics for several books",
+               description = "Returns the rating statistics of every requested book ID, in request order")
+    public Map<String, Object> getRatingStats(@RequestParam(value = "ids") List<Long> bookIds) {
+        if (bookIds.isEmpty() || bookIds.size() > MAX_RATING_STATS_IDS) {
+            return Collections.singletonMap("error", "Between 1 and " + MAX_RATING_STATS_IDS + " book IDs are required");
+        }
+        requirePositiveIds(bookIds);
 
+        List<RatingStatsDto> stats = new ArrayList<>();
+        for (Long bookId : bookIds) {
+            stats.add(ratingHistograms.stats(bookId));
+        }
+        return Collections.singletonMap("books", stats);
+    }
+}
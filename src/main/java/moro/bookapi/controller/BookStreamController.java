@@ -0,0 +1,116 @@
+package moro.bookapi.controller;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientException;
+import org.springframework.web.server.ResponseStatusException;
+
+import io.swagger.v3.oas.annotations.Operation;
+import moro.bookapi.gutendex.GutendexMapper;
+import moro.bookapi.model.BookDto;
+import moro.bookapi.storage.ReviewStore;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * Non-blocking variants of {@code /search} and {@code /top}. Instead of waiting
+ * for the whole page to be enriched, every book is written to the client (as
+ * NDJSON or Server-Sent Events, depending on the Accept header) as soon as its
+ * reviews have been loaded.
+ */
+@RestController
+@RequestMapping("/stream")
+public class BookStreamController {
+    private final WebClient webClient;
+    private final ReviewStore reviewStore;
+    private final Scheduler jdbcScheduler;
+    private final int concurrency;
+
+    public BookStreamController(WebClient webClient, ReviewStore reviewStore, Scheduler jdbcScheduler,
+            @Value("${bookapi.stream.concurrency:8}") int concurrency) {
+        this.webClient = webClient;
+        this.reviewStore = reviewStore;
+        this.jdbcScheduler = jdbcScheduler;
+        this.concurrency = concurrency;
+    }
+
+    @GetMapping(value = "/search", produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE })
+    @Operation(summary = "Stream book search", description = "Search for books by title, streaming each book as soon as it is enriched")
+    public Flux<BookDto> streamBooks(
+            @RequestParam(value = "title", defaultValue = "") String title,
+            @RequestParam(value = "page", defaultValue = "1") int page) {
+
+        // Enforce positive page number
+        if (page <= 0) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Page number must be a positive integer"));
+        }
+
+        return webClient.get()
+                .uri("/books?search={title}&page={page}", title, page)
+                .retrieve()
+                .bodyToMono(String.class)
+                .onErrorMap(WebClientException.class,
+                        e -> new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "An error occurred while fetching the books", e))
+                .map(GutendexMapper::parse)
+                .flatMapIterable(GutendexMapper::results)
+                .map(GutendexMapper::toBookDto)
+                // Emit in completion order so a slow book does not hold back the others
+                .flatMap(this::embedReviewDetails, concurrency);
+    }
+
+    @GetMapping(value = "/top", produces = { MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE })
+    @Operation(summary = "Stream top books", description = "Stream the top N rated books in ranking order")
+    public Flux<BookDto> streamTopBooks(@RequestParam(value = "n", defaultValue = "10") int n) {
+        if (n <= 0) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Number must be a positive integer"));
+        }
+
+        return Mono.fromCallable(() -> reviewStore.findTopRated(n))
+                .subscribeOn(jdbcScheduler)
+                .flatMapIterable(ratings -> ratings)
+                .map(rating -> {
+                    BookDto book = new BookDto();
+                    book.setId(rating.bookId());
+                    book.setRating(rating.averageRating());
+                    return book;
+                })
+                // Details are fetched concurrently but emitted in ranking order
+                .flatMapSequential(this::fetchBookDetails, concurrency);
+    }
+
+    private Mono<BookDto> embedReviewDetails(BookDto bookDto) {
+        return Mono.fromCallable(() -> {
+            BookController.embedReviewDetailsInBook(bookDto, reviewStore.findByBookId(bookDto.getId()));
+            return bookDto;
+        }).subscribeOn(jdbcScheduler);
+    }
+
+    private Mono<BookDto> fetchBookDetails(BookDto book) {
+        return webClient.get()
+                .uri("/books?ids={id}", book.getId())
+                .retrieve()
+                .bodyToMono(String.class)
+                .map(resp -> {
+                    List<Map<String, Object>> results = GutendexMapper.results(GutendexMapper.parse(resp));
+                    if (!results.isEmpty()) {
+                        BookDto details = GutendexMapper.toBookDto(results.get(0));
+                        book.setTitle(details.getTitle());
+                        book.setLanguages(details.getLanguages());
+                        book.setAuthors(details.getAuthors());
+                    }
+                    return book;
+                })
+                // Same as /top: a failed lookup still returns the ranked book
+                .onErrorResume(WebClientException.class, e -> Mono.just(book));
+    }
+}
@@ -1,27 +1,65 @@
 package moro.bookapi.controller;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import jakarta.servlet.http.HttpServletRequest;
 
-import javax.sql.DataSource;
 import moro.bookapi.model.Review;
+import moro.bookapi.search.SearchPagePrefetcher;
+import moro.bookapi.stats.RatingHistograms;
+import moro.bookapi.stats.TrendingCounters;
+import moro.bookapi.storage.ReviewFilter;
+import moro.bookapi.storage.ReviewStore;
 
 @RestController
 public class ReviewController {
-    private final JdbcTemplate jdbcTemplate;
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+    private static final Object EXPORT_TIMEOUT_KEY = ReviewController.class.getName() + ".exportTimeout";
+    // Exports run as long as the client keeps reading, zero or less means no timeout
+    private static final long EXPORT_TIMEOUT = -1;
+
+    private final ReviewStore reviewStore;
+    private final RatingHistograms ratingHistograms;
+    private final TrendingCounters trendingCounters;
+    private final SearchPagePrefetcher searchPagePrefetcher;
 
-    public ReviewController(DataSource dataSource) {
-        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    public ReviewController(ReviewStore reviewStore, RatingHistograms ratingHistograms,
+            TrendingCounters trendingCounters, SearchPagePrefetcher searchPagePrefetcher) {
+        this.reviewStore = reviewStore;
+        this.ratingHistograms = ratingHistograms;
+        this.trendingCounters = trendingCounters;
+        this.searchPagePrefetcher = searchPagePrefetcher;
     }
 
     @PostMapping("/reviews")
@@ -49,13 +87,18 @@ public class ReviewController {
     public ResponseEntity<Review> submitReview(@RequestBody Review review) {
         try {
             // Validate the review
-            if (review.getRating() < 0 || review.getRating() > 5 || review.getReviewText() == null) {
+            if (review.bookId() == null || review.rating() == null
+                    || review.rating() < 0 || review.rating() > ReviewStore.MAX_RATING
+                    || review.reviewText() == null) {
                 return ResponseEntity.badRequest().build();
             }
 
             // Insert review into the database
-            String sql = "INSERT INTO reviews (book_id, rating, review_text, created_at) VALUES (?, ?, ?, ?)";
-            jdbcTemplate.update(sql, review.getBookId(), review.getRating(), review.getReviewText(), review.getTimestamp());
+            reviewStore.save(review);
+            ratingHistograms.record(review.bookId(), review.rating());
+            trendingCounters.record(review.bookId(), review.rating(), review.createdAt());
+            // Prefetched search pages embed the book's reviews and average rating
+            searchPagePrefetcher.invalidateBooks(List.of(review.bookId()));
 
             return ResponseEntity.status(HttpStatus.CREATED).body(review);
         } catch (Exception e) {
@@ -64,4 +107,109 @@ public class ReviewController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
-}
\ No newline at end of file
+
+    @GetMapping("/reviews/export")
+    @Operation(
+        summary = "Export reviews",
+        description = "Streams every review matching the optional filters as NDJSON or CSV. " +
+                      "The response is gzip encoded when the client accepts it."
+    )
+    @ApiResponse(responseCode = "200", description = "Reviews streamed in review id order")
+    public ResponseEntity<StreamingResponseBody> exportReviews(
+            @RequestParam(value = "bookId", required = false) Long bookId,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletRequest request) {
+
+        ReviewExportFormat exportFormat = ReviewExportFormat.from(format);
+        if (exportFormat == null || (from != null && to != null && from.isAfter(to))) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // Both dates are whole days, so "to" includes everything up to its midnight
+        ReviewFilter filter = new ReviewFilter(bookId,
+                from != null ? from.atStartOfDay() : null,
+                to != null ? to.plusDays(1).atStartOfDay() : null);
+        boolean gzip = acceptsGzip(acceptEncoding);
+
+        // The body is streamed in a second async round, which would get the
+        // default async timeout of every other endpoint
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(EXPORT_TIMEOUT_KEY,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void beforeConcurrentHandling(NativeWebRequest webRequest, Callable<T> task) {
+                        if (webRequest instanceof AsyncWebRequest asyncWebRequest) {
+                            asyncWebRequest.setTimeout(EXPORT_TIMEOUT);
+                        }
+                    }
+                });
+
+        StreamingResponseBody body = out -> {
+            GZIPOutputStream gzipStream = gzip ? new GZIPOutputStream(out, EXPORT_BUFFER_SIZE) : null;
+            Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(gzip ? gzipStream : out, StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE);
+            exportFormat.writeHeader(writer);
+            try {
+                reviewStore.exportReviews(filter, review -> {
+                    try {
+                        exportFormat.writeRow(writer, review);
+                    } catch (IOException e) {
+                        // Usually the client went away, stop reading from the cursor
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.flush();
+            if (gzip) {
+                gzipStream.finish();
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(exportFormat.mediaType())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"reviews." + exportFormat.extension() + "\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Whether the Accept-Encoding header allows gzip, honouring q-values:
+     * {@code gzip;q=0} refuses it, a positive {@code *} accepts it unless gzip
+     * is listed on its own.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean gzip = null;
+        boolean wildcard = false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzip = quality > 0;
+            } else if (name.equals("*")) {
+                wildcard = quality > 0;
+            }
+        }
+        return gzip != null ? gzip : wildcard;
+    }
+}
@@ -0,0 +1,111 @@
+package moro.bookapi.controller;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.springframework.http.MediaType;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import moro.bookapi.storage.ExportedReview;
+
+/**
+ * Output formats of {@code GET /reviews/export}. Rows are written one at a
+ * time straight to the response writer.
+ */
+enum ReviewExportFormat {
+    NDJSON(MediaType.APPLICATION_NDJSON, "ndjson") {
+        @Override
+        void writeHeader(Writer writer) {
+        }
+
+        @Override
+        void writeRow(Writer writer, ExportedReview review) throws IOException {
+            writer.write("{\"reviewId\":");
+            writer.write(Long.toString(review.reviewId()));
+            writer.write(",\"bookId\":");
+            writer.write(Long.toString(review.bookId()));
+            writer.write(",\"rating\":");
+            writer.write(Integer.toString(review.rating()));
+            writer.write(",\"createdAt\":");
+            writeJsonString(writer, review.createdAt());
+            writer.write(",\"reviewText\":");
+            writeJsonString(writer, review.reviewText());
+            writer.write("}\n");
+        }
+
+        private void writeJsonString(Writer writer, String value) throws IOException {
+            if (value == null) {
+                writer.write("null");
+                return;
+            }
+            writer.write('"');
+            writer.write(JsonStringEncoder.getInstance().quoteAsString(value));
+            writer.write('"');
+        }
+    },
+
+    CSV(new MediaType("text", "csv"), "csv") {
+        @Override
+        void writeHeader(Writer writer) throws IOException {
+            writer.write("reviewId,bookId,rating,createdAt,reviewText\r\n");
+        }
+
+        @Override
+        void writeRow(Writer writer, ExportedReview review) throws IOException {
+            writer.write(Long.toString(review.reviewId()));
+            writer.write(',');
+            writer.write(Long.toString(review.bookId()));
+            writer.write(',');
+            writer.write(Integer.toString(review.rating()));
+            writer.write(',');
+            writeCsvField(writer, review.createdAt());
+            writer.write(',');
+            writeCsvField(writer, review.reviewText());
+            writer.write("\r\n");
+        }
+
+        // RFC 4180: quote fields containing separators, quotes or line breaks
+        private void writeCsvField(Writer writer, String value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    };
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    ReviewExportFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    static ReviewExportFormat from(String format) {
+        for (ReviewExportFormat candidate : values()) {
+            if (candidate.extension.equalsIgnoreCase(format)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    MediaType mediaType() {
+        return mediaType;
+    }
+
+    String extension() {
+        return extension;
+    }
+
+    abstract void writeHeader(Writer writer) throws IOException;
+
+    abstract void writeRow(Writer writer, ExportedReview review) throws IOException;
+}
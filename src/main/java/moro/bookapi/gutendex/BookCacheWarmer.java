@@ -0,0 +1,151 @@
+package moro.bookapi.gutendex;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+
+import jakarta.annotation.PreDestroy;
+import moro.bookapi.storage.BookRating;
+import moro.bookapi.storage.ReviewStore;
+
+/**
+ * Fills the {@link BookMetadataCache} before the first request arrives, from
+ * the hot-key snapshot of the previous run plus the most reviewed and top
+ * rated books. Runs as an {@link ApplicationRunner}: Spring Boot only reports
+ * readiness once every runner has returned, so a load balancer keeps sending
+ * traffic elsewhere until the cache is warm or the time budget is spent.
+ */
+@Component
+public class BookCacheWarmer implements ApplicationRunner {
+    private static final Logger log = LoggerFactory.getLogger(BookCacheWarmer.class);
+
+    private final ReviewStore reviewStore;
+    private final GutendexClient gutendexClient;
+    private final BookMetadataCache cache;
+    private final WarmupProperties properties;
+
+    public BookCacheWarmer(ReviewStore reviewStore, GutendexClient gutendexClient, BookMetadataCache cache,
+            WarmupProperties properties) {
+        this.reviewStore = reviewStore;
+        this.gutendexClient = gutendexClient;
+        this.cache = cache;
+        this.properties = properties;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException {
+        if (properties.isEnabled()) {
+            warmUp();
+        }
+    }
+
+    /**
+     * Prefetches every book id worth warming, a few multi-id requests at a
+     * time, and returns when done or when the time budget runs out.
+     */
+    void warmUp() throws InterruptedException {
+        Set<Long> bookIds = new LinkedHashSet<>(readSnapshot());
+        for (BookRating rating : reviewStore.findMostReviewed(properties.getBooks())) {
+            bookIds.add(rating.bookId());
+        }
+        for (BookRating rating : reviewStore.findTopRated(properties.getBooks())) {
+            bookIds.add(rating.bookId());
+        }
+
+        List<Long> ids = new ArrayList<>(bookIds);
+        List<Callable<Void>> batches = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += GutendexClient.IDS_PER_REQUEST) {
+            List<Long> batch = ids.subList(from, Math.min(ids.size(), from + GutendexClient.IDS_PER_REQUEST));
+            batches.add(() -> {
+                try {
+                    gutendexClient.findBooks(batch);
+                } catch (RestClientException e) {
+                    log.warn("Could not prefetch books {}", batch, e);
+                }
+                return null;
+            });
+        }
+        if (batches.isEmpty()) {
+            return;
+        }
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("cache-warmup-");
+        // A request stuck past the deadline must not keep the JVM alive
+        threadFactory.setDaemon(true);
+        ExecutorService executor = Executors.newFixedThreadPool(properties.getConcurrency(), threadFactory);
+        try {
+            // Batches still running at the deadline are cancelled
+            executor.invokeAll(batches, properties.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        log.info("Cache warm-up loaded {} of {} books", cache.size(), ids.size());
+    }
+
+    private List<Long> readSnapshot() {
+        Path file = properties.getSnapshotFile();
+        List<Long> ids = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return ids;
+        }
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                if (ids.size() == properties.getBooks()) {
+                    break;
+                }
+                if (!line.isBlank()) {
+                    ids.add(Long.parseLong(line.trim()));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // A damaged snapshot only costs a colder start
+            log.warn("Ignoring unreadable hot-key snapshot {}", file, e);
+        }
+        return ids;
+    }
+
+    @Scheduled(fixedDelayString = "${bookapi.cache.warmup.snapshot-interval:300000}",
+               initialDelayString = "${bookapi.cache.warmup.snapshot-interval:300000}")
+    public void writeSnapshotPeriodically() {
+        writeSnapshot();
+    }
+
+    @PreDestroy
+    public void writeSnapshot() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        List<Long> hotKeys = cache.hotKeys(properties.getBooks());
+        if (hotKeys.isEmpty()) {
+            return;
+        }
+        Path file = properties.getSnapshotFile().toAbsolutePath();
+        try {
+            // Written next to the target and moved over it, so a crash never leaves half a snapshot
+            Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            Files.write(temp, hotKeys.stream().map(String::valueOf).toList(), StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write hot-key snapshot {}", file, e);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package moro.bookapi.gutendex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import moro.bookapi.model.BookDto;
+
+/**
+ * Least recently used Gutendex metadata (title, authors, languages, download
+ * count) by book id. Book metadata practically never changes, so entries are
+ * only ever evicted for space. Callers always get their own copy, since the
+ * controllers fill in ratings and reviews afterwards.
+ */
+@Component
+public class BookMetadataCache {
+    private final Map<Long, BookDto> books;
+
+    public BookMetadataCache(@Value("${bookapi.cache.books.max-size:10000}") int maxSize) {
+        this.books = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, BookDto> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public synchronized BookDto get(long bookId) {
+        BookDto book = books.get(bookId);
+        return book != null ? copyOf(book) : null;
+    }
+
+    public synchronized void put(BookDto book) {
+        books.put(book.getId(), copyOf(book));
+    }
+
+    public synchronized int size() {
+        return books.size();
+    }
+
+    /**
+     * Ids of the {@code n} most recently used books, most recent first.
+     */
+    public synchronized List<Long> hotKeys(int n) {
+        List<Long> ids = new ArrayList<>(books.keySet());
+        Collections.reverse(ids);
+        return new ArrayList<>(ids.subList(0, Math.min(n, ids.size())));
+    }
+
+    private static BookDto copyOf(BookDto book) {
+        BookDto copy = new BookDto();
+        copy.setId(book.getId());
+        copy.setTitle(book.getTitle());
+        copy.setAuthors(book.getAuthors());
+        copy.setLanguages(book.getLanguages());
+        copy.setDownloadCount(book.getDownloadCount());
+        return copy;
+    }
+}
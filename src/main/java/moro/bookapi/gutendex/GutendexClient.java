@@ -0,0 +1,64 @@
+package moro.bookapi.gutendex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import moro.bookapi.model.BookDto;
+
+/**
+ * Book metadata lookups by id, served from the {@link BookMetadataCache}
+ * where possible. Misses are fetched with multi-id requests instead of one
+ * request per book.
+ */
+@Component
+public class GutendexClient {
+    // Gutendex pages hold 32 books, so larger requests would need a second page
+    static final int IDS_PER_REQUEST = 32;
+
+    private final RestTemplate restTemplate;
+    private final BookMetadataCache cache;
+
+    public GutendexClient(RestTemplate restTemplate, BookMetadataCache cache) {
+        this.restTemplate = restTemplate;
+        this.cache = cache;
+    }
+
+    /**
+     * Metadata of every given book Gutendex knows, keyed by id. Ids missing
+     * from the result do not exist upstream.
+     *
+     * @throws RestClientException if an upstream request fails
+     */
+    public Map<Long, BookDto> findBooks(Collection<Long> bookIds) {
+        Map<Long, BookDto> books = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long bookId : bookIds) {
+            BookDto cached = cache.get(bookId);
+            if (cached != null) {
+                books.put(bookId, cached);
+            } else {
+                missing.add(bookId);
+            }
+        }
+
+        for (int from = 0; from < missing.size(); from += IDS_PER_REQUEST) {
+            List<Long> chunk = missing.subList(from, Math.min(missing.size(), from + IDS_PER_REQUEST));
+            String ids = chunk.stream().map(String::valueOf).collect(Collectors.joining(","));
+            String resp = restTemplate.getForObject("https://gutendex.com/books?ids=" + ids, String.class);
+            for (Map<String, Object> result : GutendexMapper.results(GutendexMapper.parse(resp))) {
+                BookDto book = GutendexMapper.toBookDto(result);
+                cache.put(book);
+                books.put(book.getId(), book);
+            }
+        }
+        return books;
+    }
+}
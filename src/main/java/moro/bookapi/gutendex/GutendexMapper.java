@@ -0,0 +1,66 @@
+package moro.bookapi.gutendex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.json.JsonParser;
+import org.springframework.boot.json.JsonParserFactory;
+
+import moro.bookapi.model.AuthorDto;
+import moro.bookapi.model.BookDto;
+
+/**
+ * Maps Gutendex JSON responses to our DTOs. Shared by the blocking and the
+ * streaming controllers so both return identical book representations.
+ */
+public final class GutendexMapper {
+
+    private GutendexMapper() {
+    }
+
+    public static Map<String, Object> parse(String json) {
+        JsonParser springParser = JsonParserFactory.getJsonParser();
+        return springParser.parseMap(json);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static List<Map<String, Object>> results(Map<String, Object> response) {
+        List<Map<String, Object>> results = (List<Map<String, Object>>) response.get("results");
+        return results != null ? results : Collections.emptyList();
+    }
+
+    /**
+     * Builds a book from a single Gutendex result. Rating and reviews are left
+     * unset; they come from our own database.
+     */
+    @SuppressWarnings("unchecked")
+    public static BookDto toBookDto(Map<String, Object> result) {
+        BookDto bookDto = new BookDto();
+        bookDto.setId((int) result.get("id"));
+        bookDto.setTitle((String) result.get("title"));
+        bookDto.setAuthors(toAuthors(result));
+        bookDto.setLanguages((List<String>) result.get("languages"));
+        bookDto.setDownloadCount((int) result.get("download_count"));
+        return bookDto;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static List<AuthorDto> toAuthors(Map<String, Object> result) {
+        List<Map<String, Object>> authors = (List<Map<String, Object>>) result.get("authors");
+        List<AuthorDto> authorDtos = new ArrayList<>();
+
+        for (Map<String, Object> author : authors) {
+            AuthorDto authorDto = new AuthorDto();
+            authorDto.setName((String) author.get("name"));
+            // Check for null before trying to access the Integer values
+            authorDto.setBirthYear(author.get("birth_year") != null ? ((Integer) author.get("birth_year")) : null);
+            authorDto.setDeathYear(author.get("death_year") != null ? ((Integer) author.get("death_year")) : null);
+
+            authorDtos.add(authorDto);
+        }
+
+        return authorDtos;
+    }
+}
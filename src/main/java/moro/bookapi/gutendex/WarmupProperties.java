@@ -0,0 +1,71 @@
+package moro.bookapi.gutendex;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Startup warm-up of the {@link BookMetadataCache}, bound from {@code bookapi.cache.warmup.*}.
+ */
+@ConfigurationProperties("bookapi.cache.warmup")
+public class WarmupProperties {
+
+    private boolean enabled = true;
+
+    /** Books taken from each source: most reviewed, top rated and the hot-key snapshot. */
+    private int books = 100;
+
+    /** Upstream requests in flight at once while warming up. */
+    private int concurrency = 4;
+
+    /** Readiness is reported after this long even if warm-up has not finished. */
+    private Duration timeout = Duration.ofSeconds(30);
+
+    /**
+     * Most recently used book ids, written every
+     * {@code bookapi.cache.warmup.snapshot-interval} milliseconds and at
+     * shutdown, and read back at startup.
+     */
+    private Path snapshotFile = Path.of("hot-books.txt");
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getBooks() {
+        return books;
+    }
+
+    public void setBooks(int books) {
+        this.books = books;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    public Path getSnapshotFile() {
+        return snapshotFile;
+    }
+
+    public void setSnapshotFile(Path snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+}
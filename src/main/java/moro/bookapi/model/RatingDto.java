@@ -1,9 +1,12 @@
 package moro.bookapi.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class RatingDto {
     private int year;
     private int month;
     private double averageRating;
+    private long reviewCount;
     
     public int getYear() {
         return year;
@@ -23,4 +26,12 @@ public class RatingDto {
     public void setAverageRating(double averageRating) {
         this.averageRating = averageRating;
     }
+    // Only needed to merge the months of several stores, not part of the API
+    @JsonIgnore
+    public long getReviewCount() {
+        return reviewCount;
+    }
+    public void setReviewCount(long reviewCount) {
+        this.reviewCount = reviewCount;
+    }
 }
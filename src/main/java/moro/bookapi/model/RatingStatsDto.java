@@ -0,0 +1,63 @@
+package moro.bookapi.model;
+
+import java.util.Map;
+
+public class RatingStatsDto {
+    private long bookId;
+    private long reviewCount;
+    private double mean;
+    private Double median;
+    private Map<String, Integer> percentiles;
+    private long[] histogram;
+
+    public long getBookId() {
+        return bookId;
+    }
+
+    public void setBookId(long bookId) {
+        this.bookId = bookId;
+    }
+
+    public long getReviewCount() {
+        return reviewCount;
+    }
+
+    public void setReviewCount(long reviewCount) {
+        this.reviewCount = reviewCount;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public void setMean(double mean) {
+        this.mean = mean;
+    }
+
+    public Double getMedian() {
+        return median;
+    }
+
+    public void setMedian(Double median) {
+        this.median = median;
+    }
+
+    public Map<String, Integer> getPercentiles() {
+        return percentiles;
+    }
+
+    public void setPercentiles(Map<String, Integer> percentiles) {
+        this.percentiles = percentiles;
+    }
+
+    /**
+     * Number of reviews per star rating, index 0 to 5.
+     */
+    public long[] getHistogram() {
+        return histogram;
+    }
+
+    public void setHistogram(long[] histogram) {
+        this.histogram = histogram;
+    }
+}
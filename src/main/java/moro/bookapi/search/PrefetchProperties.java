@@ -0,0 +1,98 @@
+package moro.bookapi.search;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Prefetching of the next {@code /search} page, bound from {@code bookapi.search.prefetch.*}.
+ */
+@ConfigurationProperties("bookapi.search.prefetch")
+public class PrefetchProperties {
+
+    private boolean enabled = true;
+
+    /** Share of a query's pages whose next page was requested, above which the next page is prefetched. */
+    private double threshold = 0.5;
+
+    /** Pages of a query served before its click-through rate is trusted. */
+    private int minSamples = 3;
+
+    /** Queries whose paging behavior is tracked; the least recently used are forgotten. */
+    private int trackedQueries = 1000;
+
+    /** Prefetched pages kept until they are requested, expire or are evicted. */
+    private int cachedPages = 200;
+
+    /** Prefetched pages older than this are discarded, so their ratings and reviews stay fresh. */
+    private Duration ttl = Duration.ofMinutes(1);
+
+    /** Prefetches running at once; further ones wait in a queue of {@code queueSize} or are dropped. */
+    private int concurrency = 2;
+
+    private int queueSize = 16;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public double getThreshold() {
+        return threshold;
+    }
+
+    public void setThreshold(double threshold) {
+        this.threshold = threshold;
+    }
+
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    public void setMinSamples(int minSamples) {
+        this.minSamples = minSamples;
+    }
+
+    public int getTrackedQueries() {
+        return trackedQueries;
+    }
+
+    public void setTrackedQueries(int trackedQueries) {
+        this.trackedQueries = trackedQueries;
+    }
+
+    public int getCachedPages() {
+        return cachedPages;
+    }
+
+    public void setCachedPages(int cachedPages) {
+        this.cachedPages = cachedPages;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+}
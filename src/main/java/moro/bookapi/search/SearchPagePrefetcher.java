@@ -0,0 +1,176 @@
+package moro.bookapi.search;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import moro.bookapi.model.BookDto;
+
+/**
+ * Learns which {@code /search} queries users page through and, for those,
+ * loads page N+1 in the background right after page N has been served. The
+ * prefetched response waits in a small cache until the follow-up request
+ * takes it.
+ *
+ * <p>Per query it counts the pages served that had a next page and the
+ * requests for a page after the first. Their ratio is the query's next-page
+ * click-through rate; once it passes the threshold, the next page is
+ * prefetched. Memory is bounded by the number of tracked queries and cached
+ * pages, work by the prefetch pool and its queue.
+ */
+@Component
+public class SearchPagePrefetcher {
+    private static final Logger log = LoggerFactory.getLogger(SearchPagePrefetcher.class);
+
+    private final PrefetchProperties properties;
+    private final Map<String, QueryStats> stats;
+    private final Map<PageKey, CachedPage> pages;
+    private final Set<PageKey> inFlight = new HashSet<>();
+    private final Executor executor;
+
+    @Autowired
+    public SearchPagePrefetcher(PrefetchProperties properties) {
+        this(properties, newExecutor(properties));
+    }
+
+    SearchPagePrefetcher(PrefetchProperties properties, Executor executor) {
+        this.properties = properties;
+        this.executor = executor;
+        this.stats = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, QueryStats> eldest) {
+                return size() > properties.getTrackedQueries();
+            }
+        };
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PageKey, CachedPage> eldest) {
+                return size() > properties.getCachedPages();
+            }
+        };
+    }
+
+    private static ThreadPoolExecutor newExecutor(PrefetchProperties properties) {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("search-prefetch-");
+        threadFactory.setDaemon(true);
+        // A full queue drops the prefetch; the page is simply loaded on demand later
+        return new ThreadPoolExecutor(properties.getConcurrency(), properties.getConcurrency(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.getQueueSize()), threadFactory,
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    private static String normalize(String title) {
+        return title.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Counts a request and returns its page if it was prefetched, removing it
+     * from the cache. Returns null if the page has to be loaded.
+     */
+    public Map<String, Object> take(String title, int page) {
+        String query = normalize(title);
+        synchronized (this) {
+            if (page > 1) {
+                stats.computeIfAbsent(query, key -> new QueryStats()).followUps++;
+            }
+            CachedPage cached = pages.remove(new PageKey(query, page));
+            if (cached == null || System.nanoTime() - cached.loadedAt() > properties.getTtl().toNanos()) {
+                return null;
+            }
+            return cached.response();
+        }
+    }
+
+    /**
+     * Called after page {@code page} has been served. Prefetches the next page
+     * with {@code nextPage} when there is one and the query is paged through
+     * often enough.
+     */
+    public void served(String title, int page, boolean hasNext, Supplier<Map<String, Object>> nextPage) {
+        if (!hasNext) {
+            return;
+        }
+        PageKey next = new PageKey(normalize(title), page + 1);
+        synchronized (this) {
+            QueryStats queryStats = stats.computeIfAbsent(next.query(), key -> new QueryStats());
+            queryStats.pagesWithNext++;
+            if (!properties.isEnabled() || queryStats.pagesWithNext < properties.getMinSamples()
+                    || queryStats.clickThroughRate() < properties.getThreshold()
+                    || pages.containsKey(next) || !inFlight.add(next)) {
+                return;
+            }
+        }
+
+        try {
+            executor.execute(() -> prefetch(next, nextPage));
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                inFlight.remove(next);
+            }
+        }
+    }
+
+    private void prefetch(PageKey key, Supplier<Map<String, Object>> nextPage) {
+        try {
+            Map<String, Object> response = nextPage.get();
+            synchronized (this) {
+                pages.put(key, new CachedPage(response, System.nanoTime()));
+            }
+        } catch (RuntimeException e) {
+            log.debug("Could not prefetch page {} of '{}'", key.page(), key.query(), e);
+        } finally {
+            synchronized (this) {
+                inFlight.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Drops prefetched pages listing any of the given books, since the reviews
+     * embedded in them are out of date.
+     */
+    public synchronized void invalidateBooks(Collection<Long> bookIds) {
+        pages.values().removeIf(page -> page.response().get("results") instanceof List<?> results
+                && results.stream().anyMatch(book -> book instanceof BookDto bookDto && bookIds.contains(bookDto.getId())));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor instanceof ExecutorService executorService) {
+            executorService.shutdownNow();
+        }
+    }
+
+    private record PageKey(String query, int page) {
+    }
+
+    private record CachedPage(Map<String, Object> response, long loadedAt) {
+    }
+
+    private static final class QueryStats {
+        private long pagesWithNext;
+        private long followUps;
+
+        double clickThroughRate() {
+            return pagesWithNext > 0 ? (double) followUps / pagesWithNext : 0;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package moro.bookapi.stats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+import moro.bookapi.model.RatingStatsDto;
+import moro.bookapi.storage.ReviewStore;
+
+/**
+ * Six counters per book, one for every star rating from 0 to 5. Built once from
+ * the review store at startup and then kept current by {@link #record}, so
+ * rating statistics never have to read the reviews table.
+ */
+@Component
+@DependsOn("reviewChangeFeed")
+public class RatingHistograms {
+    public static final int MAX_RATING = ReviewStore.MAX_RATING;
+    private static final int[] PERCENTILES = { 25, 50, 75, 90 };
+
+    private final Map<Long, AtomicLongArray> histograms = new ConcurrentHashMap<>();
+
+    public RatingHistograms(ReviewStore reviewStore) {
+        for (Map.Entry<Long, long[]> counts : reviewStore.countRatings().entrySet()) {
+            histograms.put(counts.getKey(), new AtomicLongArray(counts.getValue()));
+        }
+    }
+
+    public void record(long bookId, int rating) {
+        if (rating < 0 || rating > MAX_RATING) {
+            throw new IllegalArgumentException("Rating must be between 0 and " + MAX_RATING);
+        }
+        histograms.computeIfAbsent(bookId, id -> new AtomicLongArray(MAX_RATING + 1)).incrementAndGet(rating);
+    }
+
+    public RatingStatsDto stats(long bookId) {
+        long[] counts = new long[MAX_RATING + 1];
+        AtomicLongArray histogram = histograms.get(bookId);
+        if (histogram != null) {
+            for (int rating = 0; rating <= MAX_RATING; rating++) {
+                counts[rating] = histogram.get(rating);
+            }
+        }
+        return toStats(bookId, counts);
+    }
+
+    static RatingStatsDto toStats(long bookId, long[] counts) {
+        long total = 0;
+        long sum = 0;
+        for (int rating = 0; rating <= MAX_RATING; rating++) {
+            total += counts[rating];
+            sum += rating * counts[rating];
+        }
+
+        RatingStatsDto stats = new RatingStatsDto();
+        stats.setBookId(bookId);
+        stats.setReviewCount(total);
+        stats.setHistogram(counts);
+        stats.setMean(total > 0 ? (double) sum / total : 0);
+        if (total == 0) {
+            return stats;
+        }
+
+        // For an even count the median sits between the two middle reviews
+        int lowerMiddle = ratingAtRank(counts, (total + 1) / 2);
+        int upperMiddle = ratingAtRank(counts, total / 2 + 1);
+        stats.setMedian((lowerMiddle + upperMiddle) / 2.0);
+
+        Map<String, Integer> percentiles = new LinkedHashMap<>();
+        for (int percentile : PERCENTILES) {
+            // Nearest-rank definition
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+            percentiles.put("p" + percentile, ratingAtRank(counts, rank));
+        }
+        stats.setPercentiles(percentiles);
+        return stats;
+    }
+
+    /**
+     * Rating of the review at the given 1-based rank when all reviews are sorted by rating.
+     */
+    private static int ratingAtRank(long[] counts, long rank) {
+        long seen = 0;
+        for (int rating = 0; rating <= MAX_RATING; rating++) {
+            seen += counts[rating];
+            if (seen >= rank) {
+                return rating;
+            }
+        }
+        return MAX_RATING;
+    }
+}
@@ -0,0 +1,84 @@
+package moro.bookapi.stats;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import moro.bookapi.search.SearchPagePrefetcher;
+import moro.bookapi.storage.CachedReviewStore;
+import moro.bookapi.storage.ReviewChange;
+import moro.bookapi.storage.ReviewChangeFeed;
+import moro.bookapi.storage.ReviewStore;
+
+/**
+ * Keeps this instance current with reviews submitted to other instances
+ * sharing the database. Counters are updated incrementally from the
+ * {@link ReviewChangeFeed}; caches holding review texts drop the affected
+ * books in one batch per poll. Reviews submitted here are skipped by the
+ * feed: the controller records them in the counters and drops their books
+ * from the prefetched search pages, and the review cache appends them on save.
+ */
+@Component
+public class ReviewChangePoller {
+    private static final Logger log = LoggerFactory.getLogger(ReviewChangePoller.class);
+    private static final int BATCH_SIZE = 1000;
+
+    private final ReviewChangeFeed feed;
+    private final ReviewStore reviewStore;
+    private final RatingHistograms ratingHistograms;
+    private final TrendingCounters trendingCounters;
+    private final SearchPagePrefetcher searchPagePrefetcher;
+    private final Duration retention;
+
+    public ReviewChangePoller(ReviewChangeFeed feed, ReviewStore reviewStore, RatingHistograms ratingHistograms,
+                              TrendingCounters trendingCounters, SearchPagePrefetcher searchPagePrefetcher,
+                              @Value("${bookapi.changes.retention:1d}") Duration retention) {
+        this.feed = feed;
+        this.reviewStore = reviewStore;
+        this.ratingHistograms = ratingHistograms;
+        this.trendingCounters = trendingCounters;
+        this.searchPagePrefetcher = searchPagePrefetcher;
+        this.retention = retention;
+    }
+
+    @Scheduled(fixedDelayString = "${bookapi.changes.poll-interval:1000}")
+    public void poll() {
+        boolean more;
+        do {
+            // More than a batch only after a burst or a pause in polling
+            more = feed.poll(BATCH_SIZE, this::apply);
+        } while (more);
+    }
+
+    void apply(List<ReviewChange> changes) {
+        Set<Long> books = new HashSet<>();
+        for (ReviewChange change : changes) {
+            if (change.rating() >= 0 && change.rating() <= RatingHistograms.MAX_RATING) {
+                ratingHistograms.record(change.bookId(), change.rating());
+            }
+            trendingCounters.record(change.bookId(), change.rating(), change.createdAt());
+            books.add(change.bookId());
+        }
+
+        if (reviewStore instanceof CachedReviewStore cachedReviewStore) {
+            cachedReviewStore.invalidate(books);
+        }
+        searchPagePrefetcher.invalidateBooks(books);
+    }
+
+    @Scheduled(fixedDelayString = "${bookapi.changes.prune-interval:3600000}",
+               initialDelayString = "${bookapi.changes.prune-interval:3600000}")
+    public void prune() {
+        int deleted = feed.prune(retention);
+        if (deleted > 0) {
+            log.debug("Pruned {} review changes older than {}", deleted, retention);
+        }
+    }
+}
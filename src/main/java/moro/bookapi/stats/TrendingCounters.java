@@ -0,0 +1,180 @@
+package moro.bookapi.stats;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import moro.bookapi.model.TrendingBookDto;
+import moro.bookapi.storage.ReviewFilter;
+import moro.bookapi.storage.ReviewStore;
+
+/**
+ * Per-book review counts and rating sums over each {@link TrendingWindow},
+ * kept as a ring of time buckets per book. Every book also keeps running
+ * totals and sits in a set ordered by them, so a new review or an expired
+ * bucket only moves one book and reading the top N never re-sums anything.
+ * Books drop out once their last bucket expires, which bounds memory by the
+ * number of recently reviewed books times the bucket count.
+ */
+@Component
+@DependsOn("reviewChangeFeed")
+public class TrendingCounters {
+    private final Clock clock;
+    private final Map<TrendingWindow, Window> windows = new EnumMap<>(TrendingWindow.class);
+
+    @Autowired
+    public TrendingCounters(ReviewStore reviewStore) {
+        this(reviewStore, Clock.systemDefaultZone());
+    }
+
+    TrendingCounters(ReviewStore reviewStore, Clock clock) {
+        this.clock = clock;
+        long now = clock.millis();
+        for (TrendingWindow window : TrendingWindow.values()) {
+            windows.put(window, new Window(window, now));
+        }
+
+        // Rebuild from everything recent enough to fall into the longest window
+        LocalDateTime since = LocalDateTime.ofInstant(Instant.ofEpochMilli(now), clock.getZone())
+                .minus(TrendingWindow.MONTH.length());
+        reviewStore.exportReviews(new ReviewFilter(null, since, null),
+                review -> record(review.bookId(), review.rating(), LocalDateTime.parse(review.createdAt())));
+    }
+
+    public void record(long bookId, int rating, LocalDateTime createdAt) {
+        long at = createdAt.atZone(clock.getZone()).toInstant().toEpochMilli();
+        long now = clock.millis();
+        for (Window window : windows.values()) {
+            window.record(bookId, rating, Math.min(at, now), now);
+        }
+    }
+
+    public List<TrendingBookDto> top(TrendingWindow window, int n) {
+        return windows.get(window).top(n, clock.millis());
+    }
+
+    /**
+     * Reads and writes advance the buckets themselves; the tick makes sure
+     * expired books are released even when nothing is happening.
+     */
+    @Scheduled(fixedDelayString = "${bookapi.trending.tick:60000}")
+    public void tick() {
+        long now = clock.millis();
+        for (Window window : windows.values()) {
+            window.advance(now);
+        }
+    }
+
+    // Most reviews first, then the better average, then the lower id
+    private static final Comparator<BookCounts> RANKING = Comparator
+            .comparingLong((BookCounts book) -> book.totalCount).reversed()
+            .thenComparing(Comparator.comparingDouble(BookCounts::averageRating).reversed())
+            .thenComparingLong(book -> book.bookId);
+
+    private static final class BookCounts {
+        private final long bookId;
+        private final int[] counts;
+        private final long[] sums;
+        private long totalCount;
+        private long totalSum;
+
+        BookCounts(long bookId, int bucketCount) {
+            this.bookId = bookId;
+            this.counts = new int[bucketCount];
+            this.sums = new long[bucketCount];
+        }
+
+        double averageRating() {
+            return totalCount > 0 ? (double) totalSum / totalCount : 0;
+        }
+    }
+
+    private static final class Window {
+        private final int bucketCount;
+        private final long bucketMillis;
+        private final Map<Long, BookCounts> books = new HashMap<>();
+        private final TreeSet<BookCounts> ranking = new TreeSet<>(RANKING);
+        // Index of the newest bucket, counted in bucket sizes since the epoch
+        private long currentBucket;
+
+        Window(TrendingWindow window, long now) {
+            this.bucketCount = window.bucketCount();
+            this.bucketMillis = window.bucketSize().toMillis();
+            this.currentBucket = now / bucketMillis;
+        }
+
+        synchronized void record(long bookId, int rating, long at, long now) {
+            advance(now);
+            long bucket = at / bucketMillis;
+            if (bucket <= currentBucket - bucketCount) {
+                return;
+            }
+
+            BookCounts book = books.computeIfAbsent(bookId, id -> new BookCounts(id, bucketCount));
+            // The ranking is ordered by the totals, so the book has to leave it while they change
+            ranking.remove(book);
+            int slot = (int) (bucket % bucketCount);
+            book.counts[slot]++;
+            book.sums[slot] += rating;
+            book.totalCount++;
+            book.totalSum += rating;
+            ranking.add(book);
+        }
+
+        synchronized List<TrendingBookDto> top(int n, long now) {
+            advance(now);
+            List<TrendingBookDto> top = new ArrayList<>();
+            Iterator<BookCounts> ranked = ranking.iterator();
+            while (ranked.hasNext() && top.size() < n) {
+                BookCounts book = ranked.next();
+                TrendingBookDto dto = new TrendingBookDto();
+                dto.setBookId(book.bookId);
+                dto.setReviewCount(book.totalCount);
+                dto.setAverageRating(book.averageRating());
+                top.add(dto);
+            }
+            return top;
+        }
+
+        synchronized void advance(long now) {
+            long target = now / bucketMillis;
+            if (target <= currentBucket) {
+                return;
+            }
+
+            // Every bucket between the old and the new head has expired
+            long expired = Math.min(target - currentBucket, bucketCount);
+            Iterator<BookCounts> iterator = books.values().iterator();
+            while (iterator.hasNext()) {
+                BookCounts book = iterator.next();
+                ranking.remove(book);
+                for (long bucket = target - expired + 1; bucket <= target; bucket++) {
+                    int slot = (int) (bucket % bucketCount);
+                    book.totalCount -= book.counts[slot];
+                    book.totalSum -= book.sums[slot];
+                    book.counts[slot] = 0;
+                    book.sums[slot] = 0;
+                }
+                if (book.totalCount == 0) {
+                    iterator.remove();
+                } else {
+                    ranking.add(book);
+                }
+            }
+            currentBucket = target;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package moro.bookapi.stats;
+
+import java.time.Duration;
+
+/**
+ * The windows {@code /trending} can rank over. Each is split into a fixed
+ * number of buckets, so the ranking moves forward one bucket at a time.
+ */
+public enum TrendingWindow {
+    DAY("24h", Duration.ofHours(1), 24),
+    WEEK("7d", Duration.ofHours(6), 28),
+    MONTH("30d", Duration.ofDays(1), 30);
+
+    private final String label;
+    private final Duration bucketSize;
+    private final int bucketCount;
+
+    TrendingWindow(String label, Duration bucketSize, int bucketCount) {
+        this.label = label;
+        this.bucketSize = bucketSize;
+        this.bucketCount = bucketCount;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public Duration bucketSize() {
+        return bucketSize;
+    }
+
+    public int bucketCount() {
+        return bucketCount;
+    }
+
+    public Duration length() {
+        return bucketSize.multipliedBy(bucketCount);
+    }
+
+    /**
+     * The window for a label such as {@code 7d}, or null if there is none.
+     */
+    public static TrendingWindow from(String label) {
+        for (TrendingWindow window : values()) {
+            if (window.label.equals(label)) {
+                return window;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,19 @@
+package moro.bookapi.storage;
+
+import java.util.Comparator;
+
+/**
+ * Aggregated rating of one book as stored in the review database.
+ */
+public record BookRating(long bookId, double averageRating, long reviewCount) {
+
+    /** Ranking order of {@link ReviewStore#findTopRated}: highest average first, ties by book id. */
+    public static final Comparator<BookRating> BEST_FIRST = Comparator
+            .comparingDouble(BookRating::averageRating).reversed()
+            .thenComparingLong(BookRating::bookId);
+
+    /** Ranking order of {@link ReviewStore#findMostReviewed}: most reviews first, ties by book id. */
+    public static final Comparator<BookRating> MOST_REVIEWED_FIRST = Comparator
+            .comparingLong(BookRating::reviewCount).reversed()
+            .thenComparingLong(BookRating::bookId);
+}
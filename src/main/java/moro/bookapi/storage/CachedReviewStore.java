@@ -0,0 +1,144 @@
+package moro.bookapi.storage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import moro.bookapi.model.RatingDto;
+import moro.bookapi.model.Review;
+import moro.bookapi.model.ReviewDto;
+
+/**
+ * Serves {@link #findByBookId} from an {@link OffHeapReviewCache} in front of
+ * another store. Saved reviews are appended to the cached book in place, every
+ * other call goes straight to the delegate.
+ */
+public class CachedReviewStore implements ReviewStore, AutoCloseable {
+    private static final int STRIPES = 64;
+
+    private final ReviewStore delegate;
+    private final OffHeapReviewCache cache;
+    // Per stripe of books, guarded by this: saves still running and saves
+    // finished. A list read from the delegate is only cached if no save of the
+    // stripe overlapped the read, otherwise it could lack or repeat a review.
+    private final int[] savesInFlight = new int[STRIPES];
+    private final long[] savesDone = new long[STRIPES];
+
+    public CachedReviewStore(ReviewStore delegate, long maxBytes, int blockSize) {
+        this.delegate = delegate;
+        this.cache = new OffHeapReviewCache(maxBytes, blockSize);
+    }
+
+    @Override
+    public void save(Review review) {
+        int stripe = stripe(review.bookId());
+        synchronized (this) {
+            savesInFlight[stripe]++;
+        }
+        try {
+            delegate.save(review);
+            synchronized (this) {
+                cache.append(review.bookId(), review.rating(), review.reviewText());
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                cache.invalidate(review.bookId());
+            }
+            throw e;
+        } finally {
+            synchronized (this) {
+                savesInFlight[stripe]--;
+                savesDone[stripe]++;
+            }
+        }
+    }
+
+    @Override
+    public List<ReviewDto> findByBookId(long bookId) {
+        List<ReviewDto> cached = cache.get(bookId);
+        if (cached != null) {
+            return cached;
+        }
+
+        int stripe = stripe(bookId);
+        long before;
+        synchronized (this) {
+            before = savesInFlight[stripe] == 0 ? savesDone[stripe] : -1;
+        }
+        List<ReviewDto> reviews = delegate.findByBookId(bookId);
+        synchronized (this) {
+            if (before >= 0 && savesInFlight[stripe] == 0 && savesDone[stripe] == before) {
+                cache.put(bookId, reviews);
+            }
+        }
+        return reviews;
+    }
+
+    /**
+     * Drops books whose reviews changed elsewhere, for instance through another
+     * instance sharing the database. Counts as a save, so a read already
+     * running for one of them does not cache what it read.
+     */
+    public synchronized void invalidate(Collection<Long> bookIds) {
+        for (long bookId : bookIds) {
+            savesDone[stripe(bookId)]++;
+            cache.invalidate(bookId);
+        }
+    }
+
+    private static int stripe(long bookId) {
+        return Long.hashCode(bookId) & (STRIPES - 1);
+    }
+
+    int cachedBooks() {
+        return cache.size();
+    }
+
+    @Override
+    public Map<Long, BookRating> findRatings(Collection<Long> bookIds) {
+        return delegate.findRatings(bookIds);
+    }
+
+    @Override
+    public Map<Long, long[]> countRatings() {
+        return delegate.countRatings();
+    }
+
+    @Override
+    public List<BookRating> findTopRated(int n) {
+        return delegate.findTopRated(n);
+    }
+
+    @Override
+    public List<BookRating> findMostReviewed(int n) {
+        return delegate.findMostReviewed(n);
+    }
+
+    @Override
+    public List<RatingDto> findAverageRatingPerMonth(long bookId) {
+        return delegate.findAverageRatingPerMonth(bookId);
+    }
+
+    @Override
+    public void exportReviews(ReviewFilter filter, Consumer<ExportedReview> consumer) {
+        delegate.exportReviews(filter, consumer);
+    }
+
+    @Override
+    public long getLogCheckpoint() {
+        return delegate.getLogCheckpoint();
+    }
+
+    @Override
+    public void applyLogBatch(List<LoggedReview> batch, long upToSequence, LogBatchPublisher publisher) {
+        delegate.applyLogBatch(batch, upToSequence, publisher);
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (delegate instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+}
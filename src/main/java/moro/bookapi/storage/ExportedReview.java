@@ -0,0 +1,7 @@
+package moro.bookapi.storage;
+
+/**
+ * One row of a review export. {@code createdAt} is passed through as stored.
+ */
+public record ExportedReview(long reviewId, long bookId, int rating, String reviewText, String createdAt) {
+}
@@ -0,0 +1,285 @@
+package moro.bookapi.storage;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import moro.bookapi.model.RatingDto;
+import moro.bookapi.model.Review;
+import moro.bookapi.model.ReviewDto;
+
+/**
+ * Reviews kept in a single SQLite file. Writes go through the database's
+ * writer connection, every query through the read-only pool.
+ */
+public class JdbcReviewStore implements ReviewStore {
+    private static final Logger log = LoggerFactory.getLogger(JdbcReviewStore.class);
+    private static final String INSERT_SQL = "INSERT INTO reviews (book_id, rating, review_text, created_at) VALUES (?, ?, ?, ?)";
+    private static final String CHANGE_SQL = "INSERT INTO review_changes (book_id, rating, created_at, origin, recorded_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String CHECKPOINT_SQL = "SELECT COALESCE(MAX(sequence), 0) FROM review_log_checkpoints WHERE node_id = ?";
+    private static final String UPDATE_CHECKPOINT_SQL = "INSERT OR REPLACE INTO review_log_checkpoints (node_id, sequence) VALUES (?, ?)";
+    // The checkpoint from before they were kept per node goes to the first
+    // instance with the log enabled, which is the one that wrote it
+    private static final String CLAIM_CHECKPOINT_SQL = "UPDATE review_log_checkpoints SET node_id = ? WHERE node_id = '' " +
+            "AND NOT EXISTS (SELECT 1 FROM review_log_checkpoints WHERE node_id = ?)";
+    private static final int MAX_IN_PARAMETERS = 500;
+    private static final int MIGRATION_ATTEMPTS = 5;
+    // Rows per round trip for exports; large enough to amortize the driver
+    // overhead, small enough to keep the buffered rows negligible
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    private static final RowMapper<ReviewDto> REVIEW_MAPPER = (rs, rowNum) -> {
+        ReviewDto review = new ReviewDto();
+        review.setReviewText(rs.getString("review_text"));
+        review.setRating(rs.getInt("rating"));
+        return review;
+    };
+
+    private static final RowMapper<BookRating> RATING_MAPPER = (rs, rowNum) -> new BookRating(
+            rs.getLong("book_id"), rs.getDouble("average_rating"), rs.getLong("review_count"));
+
+    private static final RowMapper<RatingDto> MONTHLY_RATING_MAPPER = (rs, rowNum) -> {
+        RatingDto monthlyRating = new RatingDto();
+        monthlyRating.setYear(rs.getInt("year"));
+        monthlyRating.setMonth(rs.getInt("month"));
+        monthlyRating.setAverageRating(rs.getDouble("average_rating"));
+        monthlyRating.setReviewCount(rs.getLong("review_count"));
+        return monthlyRating;
+    };
+
+    private final SqliteDatabase database;
+    private final String origin;
+    private final JdbcTemplate exportJdbcTemplate;
+
+    public JdbcReviewStore(SqliteDatabase database) {
+        this(database, UUID.randomUUID().toString());
+    }
+
+    /**
+     * @param origin recorded with every review in {@code review_changes}, so
+     *               the instance that saved it can skip it in the feed, and
+     *               the key of this instance's review log checkpoint
+     */
+    public JdbcReviewStore(SqliteDatabase database, String origin) {
+        this.database = database;
+        this.origin = origin;
+        this.exportJdbcTemplate = new JdbcTemplate(database.getReadDataSource());
+        exportJdbcTemplate.setFetchSize(EXPORT_FETCH_SIZE);
+        migrate();
+    }
+
+    /**
+     * Every shard is its own database, so each one is migrated here rather
+     * than once for the application's primary data source.
+     */
+    private void migrate() {
+        Flyway flyway = Flyway.configure()
+                .dataSource(database.getWriteDataSource())
+                // Databases created before the migrations existed already hold
+                // the tables; V1 only creates what is missing
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load();
+        // Instances sharing a file may start together and SQLite offers Flyway
+        // no lock, so the one that loses the race rolls back and retries once
+        // the other has committed
+        for (int attempt = 1; ; attempt++) {
+            try {
+                flyway.migrate();
+                return;
+            } catch (FlywayException e) {
+                if (attempt == MIGRATION_ATTEMPTS) {
+                    throw e;
+                }
+                log.info("Migrating {} failed, retrying: {}", database.getUrl(), e.getMessage());
+                try {
+                    Thread.sleep(attempt * 500L);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static Object[] insertArguments(Review review) {
+        return new Object[] { review.bookId(), review.rating(), review.reviewText(), review.createdAt() };
+    }
+
+    private Object[] changeArguments(Review review, long recordedAt) {
+        return new Object[] { review.bookId(), review.rating(), review.createdAt(), origin, recordedAt };
+    }
+
+    @Override
+    public void save(Review review) {
+        database.writeTransaction().executeWithoutResult(status -> {
+            JdbcTemplate writer = database.writer();
+            writer.update(INSERT_SQL, insertArguments(review));
+            writer.update(CHANGE_SQL, changeArguments(review, System.currentTimeMillis()));
+        });
+    }
+
+    @Override
+    public List<ReviewDto> findByBookId(long bookId) {
+        String sql = "SELECT review_text, rating FROM reviews WHERE book_id = ?";
+        return database.reader().query(sql, REVIEW_MAPPER, bookId);
+    }
+
+    @Override
+    public Map<Long, BookRating> findRatings(Collection<Long> bookIds) {
+        List<Long> ids = new ArrayList<>(bookIds);
+        Map<Long, BookRating> ratings = new HashMap<>();
+
+        // Keep well below SQLite's bound parameter limit
+        for (int from = 0; from < ids.size(); from += MAX_IN_PARAMETERS) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_IN_PARAMETERS));
+            String sql = "SELECT book_id, AVG(rating) as average_rating, COUNT(*) as review_count " +
+                         "FROM reviews WHERE book_id IN (" + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ") " +
+                         "GROUP BY book_id";
+            for (BookRating rating : database.reader().query(sql, RATING_MAPPER, chunk.toArray())) {
+                ratings.put(rating.bookId(), rating);
+            }
+        }
+        return ratings;
+    }
+
+    @Override
+    public Map<Long, long[]> countRatings() {
+        String sql = "SELECT book_id, rating, COUNT(*) as review_count FROM reviews GROUP BY book_id, rating";
+        Map<Long, long[]> counts = new HashMap<>();
+        database.reader().query(sql, (RowCallbackHandler) rs -> {
+            int rating = rs.getInt("rating");
+            if (rating >= 0 && rating <= MAX_RATING) {
+                counts.computeIfAbsent(rs.getLong("book_id"), bookId -> new long[MAX_RATING + 1])[rating] = rs.getLong("review_count");
+            }
+        });
+        return counts;
+    }
+
+    @Override
+    public List<BookRating> findTopRated(int n) {
+        String sql = "SELECT book_id, AVG(rating) as average_rating, COUNT(*) as review_count " +
+                     "FROM reviews GROUP BY book_id ORDER BY average_rating DESC, book_id LIMIT ?";
+        return database.reader().query(sql, RATING_MAPPER, n);
+    }
+
+    @Override
+    public List<BookRating> findMostReviewed(int n) {
+        String sql = "SELECT book_id, AVG(rating) as average_rating, COUNT(*) as review_count " +
+                     "FROM reviews GROUP BY book_id ORDER BY review_count DESC, book_id LIMIT ?";
+        return database.reader().query(sql, RATING_MAPPER, n);
+    }
+
+    @Override
+    public List<RatingDto> findAverageRatingPerMonth(long bookId) {
+        String sql = "SELECT strftime('%Y', created_at) as year, strftime('%m', created_at) as month, " +
+                     "AVG(rating) as average_rating, COUNT(*) as review_count " +
+                     "FROM reviews " +
+                     "WHERE book_id = ? " +
+                     "GROUP BY strftime('%Y', created_at), strftime('%m', created_at) " +
+                     "ORDER BY year, month";
+        return database.reader().query(sql, MONTHLY_RATING_MAPPER, bookId);
+    }
+
+    @Override
+    public void exportReviews(ReviewFilter filter, Consumer<ExportedReview> consumer) {
+        StringBuilder sql = new StringBuilder("SELECT review_id, book_id, rating, review_text, created_at FROM reviews WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (filter.bookId() != null) {
+            sql.append(" AND book_id = ?");
+            args.add(filter.bookId());
+        }
+        // julianday() compares instants regardless of how the timestamp text is formatted
+        if (filter.from() != null) {
+            sql.append(" AND julianday(created_at) >= julianday(?)");
+            args.add(filter.from().toString());
+        }
+        if (filter.to() != null) {
+            sql.append(" AND julianday(created_at) < julianday(?)");
+            args.add(filter.to().toString());
+        }
+        // Rowid order, which both the table scan and the book_id index already return
+        sql.append(" ORDER BY review_id");
+
+        exportJdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            for (int i = 0; i < args.size(); i++) {
+                ps.setObject(i + 1, args.get(i));
+            }
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(new ExportedReview(
+                rs.getLong("review_id"),
+                rs.getLong("book_id"),
+                rs.getInt("rating"),
+                rs.getString("review_text"),
+                rs.getString("created_at"))));
+    }
+
+    /**
+     * Instances sharing the database number their log sequences independently,
+     * so each one has its own checkpoint.
+     */
+    @Override
+    public long getLogCheckpoint() {
+        return database.writeTransaction().execute(status -> {
+            JdbcTemplate writer = database.writer();
+            writer.update(CLAIM_CHECKPOINT_SQL, origin, origin);
+            return writer.queryForObject(CHECKPOINT_SQL, Long.class, origin);
+        });
+    }
+
+    /**
+     * Runs the transaction by hand rather than through the template, so only
+     * its commit goes through the publisher.
+     */
+    @Override
+    public void applyLogBatch(List<LoggedReview> batch, long upToSequence, LogBatchPublisher publisher) {
+        TransactionTemplate transaction = database.writeTransaction();
+        PlatformTransactionManager transactionManager = transaction.getTransactionManager();
+        TransactionStatus status = transactionManager.getTransaction(transaction);
+        try {
+            JdbcTemplate writer = database.writer();
+            long checkpoint = writer.queryForObject(CHECKPOINT_SQL, Long.class, origin);
+            if (upToSequence > checkpoint) {
+                List<Object[]> rows = new ArrayList<>(batch.size());
+                List<Object[]> changes = new ArrayList<>(batch.size());
+                long recordedAt = System.currentTimeMillis();
+                for (LoggedReview logged : batch) {
+                    if (logged.sequence() > checkpoint) {
+                        rows.add(insertArguments(logged.review()));
+                        changes.add(changeArguments(logged.review(), recordedAt));
+                    }
+                }
+                if (!rows.isEmpty()) {
+                    writer.batchUpdate(INSERT_SQL, rows);
+                    writer.batchUpdate(CHANGE_SQL, changes);
+                }
+                writer.update(UPDATE_CHECKPOINT_SQL, origin, upToSequence);
+            }
+        } catch (RuntimeException | Error e) {
+            transactionManager.rollback(status);
+            throw e;
+        }
+        // A batch already at or below the checkpoint is stored, committing the
+        // empty transaction publishes it all the same
+        publisher.publish(batch, () -> transactionManager.commit(status));
+    }
+}
@@ -0,0 +1,17 @@
+package moro.bookapi.storage;
+
+import java.util.List;
+
+/**
+ * Wraps the commit that makes log reviews visible in a store, see
+ * {@link ReviewStore#applyLogBatch(List, long, LogBatchPublisher)}.
+ */
+@FunctionalInterface
+public interface LogBatchPublisher {
+
+    /**
+     * Runs {@code commit}, after which {@code reviews} can be read from the
+     * store. A sharded store commits, and so publishes, once per shard.
+     */
+    void publish(List<LoggedReview> reviews, Runnable commit);
+}
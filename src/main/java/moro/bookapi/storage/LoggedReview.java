@@ -0,0 +1,9 @@
+package moro.bookapi.storage;
+
+import moro.bookapi.model.Review;
+
+/**
+ * A review together with its position in the append-only review log.
+ */
+public record LoggedReview(long sequence, Review review) {
+}
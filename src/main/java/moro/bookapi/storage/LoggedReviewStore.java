@@ -0,0 +1,338 @@
+package moro.bookapi.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import moro.bookapi.model.RatingDto;
+import moro.bookapi.model.Review;
+import moro.bookapi.model.ReviewDto;
+
+/**
+ * Write-behind in front of another store. {@link #save} only appends to the
+ * {@link ReviewLog}; a background compactor applies the log to the delegate in
+ * batches. Until then the reviews are kept in memory and merged into every
+ * read, so clients never notice the lag.
+ */
+public class LoggedReviewStore implements ReviewStore, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(LoggedReviewStore.class);
+
+    private final ReviewStore delegate;
+    private final ReviewLog reviewLog;
+    private final int batchSize;
+    private final NavigableMap<Long, Review> pending = new ConcurrentSkipListMap<>();
+    private final Map<Long, NavigableMap<Long, Review>> pendingByBook = new ConcurrentHashMap<>();
+    // Held exclusively while a committed batch leaves pending, so a read never
+    // sees a review in both places or in neither
+    private final StampedLock compactionLock = new StampedLock();
+    private final ScheduledExecutorService compactor;
+    private volatile long compactedUpTo;
+
+    public LoggedReviewStore(ReviewStore delegate, ReviewLog reviewLog, Duration compactionInterval, int batchSize) {
+        this.delegate = delegate;
+        this.reviewLog = reviewLog;
+        this.batchSize = batchSize;
+
+        // Replay whatever the last run appended but did not compact
+        List<LoggedReview> recovered = reviewLog.recovered();
+        this.compactedUpTo = recovered.isEmpty() ? reviewLog.lastSequence() : recovered.get(0).sequence() - 1;
+        for (LoggedReview logged : recovered) {
+            addPending(logged.sequence(), logged.review());
+        }
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("review-log-compactor-");
+        threadFactory.setDaemon(true);
+        this.compactor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        long interval = compactionInterval.toMillis();
+        compactor.scheduleWithFixedDelay(this::compactInBackground, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void save(Review review) {
+        try {
+            reviewLog.append(review, sequence -> addPending(sequence, review));
+        } catch (IOException | UncheckedIOException e) {
+            // MappedByteBuffer.force reports I/O errors unchecked
+            throw new DataAccessResourceFailureException("Could not append review to the log", e);
+        }
+    }
+
+    private void addPending(long sequence, Review review) {
+        pending.put(sequence, review);
+        pendingByBook.compute(review.bookId(), (bookId, reviews) -> {
+            NavigableMap<Long, Review> bookReviews = reviews != null ? reviews : new ConcurrentSkipListMap<>();
+            bookReviews.put(sequence, review);
+            return bookReviews;
+        });
+    }
+
+    private void removePending(long sequence, Review review) {
+        pending.remove(sequence);
+        pendingByBook.computeIfPresent(review.bookId(), (bookId, reviews) -> {
+            reviews.remove(sequence);
+            return reviews.isEmpty() ? null : reviews;
+        });
+    }
+
+    private Collection<Review> pendingFor(long bookId) {
+        NavigableMap<Long, Review> reviews = pendingByBook.get(bookId);
+        return reviews != null ? reviews.values() : List.of();
+    }
+
+    /**
+     * Runs a read against the delegate plus the pending reviews, retrying under
+     * a read lock if a compaction moved reviews between the two meanwhile.
+     */
+    private <T> T read(Supplier<T> query) {
+        long stamp = compactionLock.tryOptimisticRead();
+        if (stamp != 0) {
+            T result = query.get();
+            if (compactionLock.validate(stamp)) {
+                return result;
+            }
+        }
+        stamp = compactionLock.readLock();
+        try {
+            return query.get();
+        } finally {
+            compactionLock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<ReviewDto> findByBookId(long bookId) {
+        return read(() -> {
+            List<ReviewDto> reviews = new ArrayList<>(delegate.findByBookId(bookId));
+            for (Review review : pendingFor(bookId)) {
+                ReviewDto reviewDto = new ReviewDto();
+                reviewDto.setRating(review.rating());
+                reviewDto.setReviewText(review.reviewText());
+                reviews.add(reviewDto);
+            }
+            return reviews;
+        });
+    }
+
+    @Override
+    public Map<Long, BookRating> findRatings(Collection<Long> bookIds) {
+        return read(() -> withPending(delegate.findRatings(bookIds), bookIds));
+    }
+
+    private Map<Long, BookRating> withPending(Map<Long, BookRating> stored, Collection<Long> bookIds) {
+        Map<Long, BookRating> ratings = new HashMap<>(stored);
+        for (Long bookId : bookIds) {
+            long count = 0;
+            double sum = 0;
+            BookRating rating = stored.get(bookId);
+            if (rating != null) {
+                count = rating.reviewCount();
+                sum = rating.averageRating() * rating.reviewCount();
+            }
+            for (Review review : pendingFor(bookId)) {
+                count++;
+                sum += review.rating();
+            }
+            if (count > 0) {
+                ratings.put(bookId, new BookRating(bookId, sum / count, count));
+            }
+        }
+        return ratings;
+    }
+
+    @Override
+    public Map<Long, long[]> countRatings() {
+        return read(() -> {
+            Map<Long, long[]> counts = delegate.countRatings();
+            for (Review review : pending.values()) {
+                if (review.rating() >= 0 && review.rating() <= MAX_RATING) {
+                    counts.computeIfAbsent(review.bookId(), bookId -> new long[MAX_RATING + 1])[review.rating()]++;
+                }
+            }
+            return counts;
+        });
+    }
+
+    @Override
+    public List<BookRating> findTopRated(int n) {
+        return rankWithPending(n, delegate::findTopRated, BookRating.BEST_FIRST);
+    }
+
+    @Override
+    public List<BookRating> findMostReviewed(int n) {
+        return rankWithPending(n, delegate::findMostReviewed, BookRating.MOST_REVIEWED_FIRST);
+    }
+
+    private List<BookRating> rankWithPending(int n, IntFunction<List<BookRating>> ranking, Comparator<BookRating> order) {
+        return read(() -> {
+            Set<Long> pendingBooks = new HashSet<>(pendingByBook.keySet());
+            if (pendingBooks.isEmpty()) {
+                return ranking.apply(n);
+            }
+
+            // Pending reviews can move at most pendingBooks.size() books ahead of
+            // any stored book, so fetching that many extra is enough
+            List<BookRating> candidates = new ArrayList<>();
+            for (BookRating rating : ranking.apply(n + pendingBooks.size())) {
+                if (!pendingBooks.contains(rating.bookId())) {
+                    candidates.add(rating);
+                }
+            }
+            candidates.addAll(withPending(delegate.findRatings(pendingBooks), pendingBooks).values());
+            candidates.sort(order);
+            return candidates.size() > n ? new ArrayList<>(candidates.subList(0, n)) : candidates;
+        });
+    }
+
+    @Override
+    public List<RatingDto> findAverageRatingPerMonth(long bookId) {
+        return read(() -> {
+            Collection<Review> pendingReviews = pendingFor(bookId);
+            List<RatingDto> stored = delegate.findAverageRatingPerMonth(bookId);
+            if (pendingReviews.isEmpty()) {
+                return stored;
+            }
+
+            // Keyed by year * 100 + month, which also sorts chronologically
+            TreeMap<Integer, RatingDto> months = new TreeMap<>();
+            for (RatingDto month : stored) {
+                months.put(month.getYear() * 100 + month.getMonth(), month);
+            }
+            for (Review review : pendingReviews) {
+                int year = review.createdAt().getYear();
+                int monthValue = review.createdAt().getMonthValue();
+                RatingDto month = months.computeIfAbsent(year * 100 + monthValue, key -> {
+                    RatingDto empty = new RatingDto();
+                    empty.setYear(year);
+                    empty.setMonth(monthValue);
+                    return empty;
+                });
+                long count = month.getReviewCount() + 1;
+                month.setAverageRating((month.getAverageRating() * month.getReviewCount() + review.rating()) / count);
+                month.setReviewCount(count);
+            }
+            return new ArrayList<>(months.values());
+        });
+    }
+
+    /**
+     * Compacts first instead of merging the tail, since a streamed export
+     * cannot be retried like the other reads. Everything acknowledged before
+     * the export started is included.
+     */
+    @Override
+    public void exportReviews(ReviewFilter filter, Consumer<ExportedReview> consumer) {
+        try {
+            compact();
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Could not compact the review log before exporting", e);
+        }
+        delegate.exportReviews(filter, consumer);
+    }
+
+    @Override
+    public long getLogCheckpoint() {
+        return delegate.getLogCheckpoint();
+    }
+
+    @Override
+    public void applyLogBatch(List<LoggedReview> batch, long upToSequence, LogBatchPublisher publisher) {
+        delegate.applyLogBatch(batch, upToSequence, publisher);
+    }
+
+    private void compactInBackground() {
+        try {
+            compact();
+        } catch (RuntimeException | IOException e) {
+            // Pending reviews stay in memory and in the log, the next run retries
+            log.warn("Review log compaction failed", e);
+        }
+    }
+
+    /**
+     * Applies every pending review to the delegate, one batch at a time.
+     */
+    synchronized void compact() throws IOException {
+        List<LoggedReview> batch;
+        do {
+            batch = nextBatch();
+            if (batch.isEmpty()) {
+                return;
+            }
+            long upTo = batch.get(batch.size() - 1).sequence();
+
+            // Readers only wait for the commit itself, not for the inserts
+            delegate.applyLogBatch(batch, upTo, (reviews, commit) -> {
+                long stamp = compactionLock.writeLock();
+                try {
+                    commit.run();
+                    for (LoggedReview logged : reviews) {
+                        removePending(logged.sequence(), logged.review());
+                    }
+                } finally {
+                    compactionLock.unlockWrite(stamp);
+                }
+            });
+
+            compactedUpTo = upTo;
+            reviewLog.truncateUpTo(upTo);
+        } while (batch.size() == batchSize);
+    }
+
+    /**
+     * The next pending reviews up to the log's settled sequence. Appenders
+     * publish out of order, and going past an append still in flight would
+     * let the checkpoint jump over it. A sequence whose append failed is
+     * never published and simply skipped.
+     */
+    private List<LoggedReview> nextBatch() {
+        // Read before the pending map, everything settled is in it by then
+        long settled = reviewLog.settledUpTo();
+        List<LoggedReview> batch = new ArrayList<>();
+        for (Map.Entry<Long, Review> entry : pending.subMap(compactedUpTo, false, settled, true).entrySet()) {
+            if (batch.size() == batchSize) {
+                break;
+            }
+            batch.add(new LoggedReview(entry.getKey(), entry.getValue()));
+        }
+        return batch;
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            compact();
+        } finally {
+            reviewLog.close();
+        }
+    }
+}
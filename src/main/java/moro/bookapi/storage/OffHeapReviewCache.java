@@ -0,0 +1,238 @@
+package moro.bookapi.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import moro.bookapi.model.ReviewDto;
+
+/**
+ * Ratings and texts of recently read books, kept outside the Java heap so a
+ * large cache adds nothing for the garbage collector to trace. The byte budget
+ * is split into fixed size blocks carved out of direct buffer slabs. A book's
+ * reviews are UTF-8 records written across a chain of blocks; only that chain
+ * and the used length stay on the heap. When no block is free, the least
+ * recently read books are evicted.
+ */
+class OffHeapReviewCache {
+    private static final int SLAB_SIZE = 1 << 20;
+    // Record layout: rating (int), text length in bytes (int, -1 for null), text
+    private static final int RECORD_HEADER = 8;
+
+    private final int blockSize;
+    private final int blocksPerSlab;
+    private final int maxBlocks;
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final int[] freeBlocks;
+    private int freeCount;
+    private int carvedBlocks;
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private static final class Entry {
+        int[] blocks = new int[0];
+        int length;
+        int reviewCount;
+    }
+
+    OffHeapReviewCache(long maxBytes, int blockSize) {
+        if (blockSize <= RECORD_HEADER) {
+            throw new IllegalArgumentException("Block size must be larger than " + RECORD_HEADER + " bytes");
+        }
+        this.blockSize = blockSize;
+        this.blocksPerSlab = Math.max(1, SLAB_SIZE / blockSize);
+        this.maxBlocks = Math.toIntExact(maxBytes / blockSize);
+        this.freeBlocks = new int[maxBlocks];
+    }
+
+    /**
+     * The cached reviews of a book in insertion order, or null on a miss.
+     */
+    List<ReviewDto> get(long bookId) {
+        byte[] bytes;
+        int reviewCount;
+        synchronized (this) {
+            Entry entry = entries.get(bookId);
+            if (entry == null) {
+                return null;
+            }
+            bytes = new byte[entry.length];
+            transfer(entry, 0, bytes, false);
+            reviewCount = entry.reviewCount;
+        }
+        return decode(bytes, reviewCount);
+    }
+
+    /**
+     * Replaces the cached reviews of a book. Lists larger than the whole budget
+     * are not cached.
+     */
+    synchronized void put(long bookId, List<ReviewDto> reviews) {
+        invalidate(bookId);
+        byte[] bytes = encode(reviews);
+        Entry entry = new Entry();
+        if (!grow(entry, bookId, bytes.length)) {
+            return;
+        }
+        transfer(entry, 0, bytes, true);
+        entry.length = bytes.length;
+        entry.reviewCount = reviews.size();
+        entries.put(bookId, entry);
+    }
+
+    /**
+     * Adds a review to a book that is cached, in place. Books that are not
+     * cached stay uncached.
+     */
+    synchronized void append(long bookId, int rating, String reviewText) {
+        Entry entry = entries.get(bookId);
+        if (entry == null) {
+            return;
+        }
+        byte[] record = encode(List.of(toDto(rating, reviewText)));
+        if (!grow(entry, bookId, entry.length + record.length)) {
+            invalidate(bookId);
+            return;
+        }
+        transfer(entry, entry.length, record, true);
+        entry.length += record.length;
+        entry.reviewCount++;
+    }
+
+    synchronized void invalidate(long bookId) {
+        Entry entry = entries.remove(bookId);
+        if (entry != null) {
+            release(entry);
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Bytes held by cached books, in whole blocks.
+     */
+    synchronized long usedBytes() {
+        return (long) (carvedBlocks - freeCount) * blockSize;
+    }
+
+    /**
+     * Makes the block chain of an entry long enough for the given length,
+     * evicting other books if needed.
+     */
+    private boolean grow(Entry entry, long bookId, int length) {
+        int needed = (length + blockSize - 1) / blockSize;
+        int missing = needed - entry.blocks.length;
+        if (missing <= 0) {
+            return true;
+        }
+        if (needed > maxBlocks) {
+            return false;
+        }
+        Iterator<Map.Entry<Long, Entry>> eldest = entries.entrySet().iterator();
+        while (freeCount + (maxBlocks - carvedBlocks) < missing && eldest.hasNext()) {
+            Map.Entry<Long, Entry> candidate = eldest.next();
+            if (candidate.getKey() != bookId) {
+                eldest.remove();
+                release(candidate.getValue());
+            }
+        }
+        if (freeCount + (maxBlocks - carvedBlocks) < missing) {
+            return false;
+        }
+        int[] blocks = Arrays.copyOf(entry.blocks, needed);
+        for (int i = entry.blocks.length; i < needed; i++) {
+            blocks[i] = allocateBlock();
+        }
+        entry.blocks = blocks;
+        return true;
+    }
+
+    private int allocateBlock() {
+        if (freeCount > 0) {
+            return freeBlocks[--freeCount];
+        }
+        int block = carvedBlocks++;
+        if (block / blocksPerSlab == slabs.size()) {
+            int slabBlocks = Math.min(blocksPerSlab, maxBlocks - block);
+            slabs.add(ByteBuffer.allocateDirect(slabBlocks * blockSize));
+        }
+        return block;
+    }
+
+    private void release(Entry entry) {
+        for (int block : entry.blocks) {
+            freeBlocks[freeCount++] = block;
+        }
+    }
+
+    /**
+     * Copies between a heap array and the entry's blocks, starting at the given
+     * offset into the entry.
+     */
+    private void transfer(Entry entry, int offset, byte[] bytes, boolean write) {
+        int done = 0;
+        while (done < bytes.length) {
+            int position = offset + done;
+            int block = entry.blocks[position / blockSize];
+            int inBlock = position % blockSize;
+            int chunk = Math.min(blockSize - inBlock, bytes.length - done);
+            ByteBuffer slab = slabs.get(block / blocksPerSlab);
+            int index = (block % blocksPerSlab) * blockSize + inBlock;
+            if (write) {
+                slab.put(index, bytes, done, chunk);
+            } else {
+                slab.get(index, bytes, done, chunk);
+            }
+            done += chunk;
+        }
+    }
+
+    private static byte[] encode(List<ReviewDto> reviews) {
+        List<byte[]> texts = new ArrayList<>(reviews.size());
+        int length = 0;
+        for (ReviewDto review : reviews) {
+            byte[] text = review.getReviewText() != null ? review.getReviewText().getBytes(StandardCharsets.UTF_8) : null;
+            texts.add(text);
+            length += RECORD_HEADER + (text != null ? text.length : 0);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (int i = 0; i < reviews.size(); i++) {
+            byte[] text = texts.get(i);
+            buffer.putInt(reviews.get(i).getRating());
+            buffer.putInt(text != null ? text.length : -1);
+            if (text != null) {
+                buffer.put(text);
+            }
+        }
+        return buffer.array();
+    }
+
+    private static List<ReviewDto> decode(byte[] bytes, int reviewCount) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        List<ReviewDto> reviews = new ArrayList<>(reviewCount);
+        for (int i = 0; i < reviewCount; i++) {
+            int rating = buffer.getInt();
+            int length = buffer.getInt();
+            String text = null;
+            if (length >= 0) {
+                text = new String(bytes, buffer.position(), length, StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + length);
+            }
+            reviews.add(toDto(rating, text));
+        }
+        return reviews;
+    }
+
+    private static ReviewDto toDto(int rating, String reviewText) {
+        ReviewDto reviewDto = new ReviewDto();
+        reviewDto.setRating(rating);
+        reviewDto.setReviewText(reviewText);
+        return reviewDto;
+    }
+}
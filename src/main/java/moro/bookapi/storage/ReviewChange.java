@@ -0,0 +1,10 @@
+package moro.bookapi.storage;
+
+import java.time.LocalDateTime;
+
+/**
+ * A review saved by another instance sharing the database, as read from the
+ * {@code review_changes} feed.
+ */
+public record ReviewChange(long changeId, long bookId, int rating, LocalDateTime createdAt) {
+}
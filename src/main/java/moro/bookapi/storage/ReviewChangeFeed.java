@@ -0,0 +1,101 @@
+package moro.bookapi.storage;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the {@code review_changes} table of every shard past a per-shard
+ * high-water mark. Change ids only grow, and SQLite commits one writer at a
+ * time, so a range scan on the primary key after the mark returns exactly the
+ * reviews committed since the last poll, by any process using the file.
+ *
+ * <p>The marks start at the newest change when the feed is created, so build
+ * anything derived from the reviews table after that. A review another
+ * instance commits in between is then counted twice rather than missed.
+ */
+public class ReviewChangeFeed {
+    private static final Logger log = LoggerFactory.getLogger(ReviewChangeFeed.class);
+
+    private static final String POLL_SQL = "SELECT change_id, book_id, rating, created_at, origin FROM review_changes " +
+                                           "WHERE change_id > ? ORDER BY change_id LIMIT ?";
+    // sqlite_sequence still holds the last id once pruning emptied the table
+    private static final String LAST_CHANGE_SQL = "SELECT COALESCE((SELECT seq FROM sqlite_sequence WHERE name = 'review_changes'), 0)";
+
+    private record Row(long changeId, String origin, ReviewChange change) {
+    }
+
+    private final List<SqliteDatabase> shards;
+    private final String origin;
+    private final long[] highWaterMarks;
+
+    /**
+     * @param origin the origin this instance's own saves are recorded with;
+     *               those changes are skipped
+     */
+    public ReviewChangeFeed(SqliteShards shards, String origin) {
+        this.shards = shards.all();
+        this.origin = origin;
+        this.highWaterMarks = new long[this.shards.size()];
+        for (int shard = 0; shard < highWaterMarks.length; shard++) {
+            highWaterMarks[shard] = this.shards.get(shard).reader().queryForObject(LAST_CHANGE_SQL, Long.class);
+        }
+    }
+
+    /**
+     * Passes the changes of other instances since the last poll to the
+     * consumer, reading at most {@code limit} rows per shard.
+     *
+     * @return whether a shard had more rows than that
+     */
+    public synchronized boolean poll(int limit, Consumer<List<ReviewChange>> consumer) {
+        boolean more = false;
+        for (int shard = 0; shard < highWaterMarks.length; shard++) {
+            long mark = highWaterMarks[shard];
+            List<Row> rows = shards.get(shard).reader().query(POLL_SQL, (rs, rowNum) -> {
+                long changeId = rs.getLong("change_id");
+                return new Row(changeId, rs.getString("origin"), new ReviewChange(changeId,
+                        rs.getLong("book_id"), rs.getInt("rating"), LocalDateTime.parse(rs.getString("created_at"))));
+            }, mark, limit);
+            if (rows.isEmpty()) {
+                continue;
+            }
+            if (rows.get(0).changeId() != mark + 1) {
+                log.warn("Changes {} to {} of shard {} were pruned before this instance read them, " +
+                         "its aggregates miss those reviews until it is restarted",
+                         mark + 1, rows.get(0).changeId() - 1, shard);
+            }
+
+            List<ReviewChange> changes = new ArrayList<>(rows.size());
+            for (Row row : rows) {
+                if (!row.origin().equals(origin)) {
+                    changes.add(row.change());
+                }
+            }
+            if (!changes.isEmpty()) {
+                consumer.accept(changes);
+            }
+            highWaterMarks[shard] = rows.get(rows.size() - 1).changeId();
+            more |= rows.size() == limit;
+        }
+        return more;
+    }
+
+    /**
+     * Deletes changes recorded longer ago than {@code retention}. Instances
+     * that have not polled for that long lose them.
+     */
+    public int prune(Duration retention) {
+        long before = System.currentTimeMillis() - retention.toMillis();
+        int deleted = 0;
+        for (SqliteDatabase shard : shards) {
+            deleted += shard.writer().update("DELETE FROM review_changes WHERE recorded_at < ?", before);
+        }
+        return deleted;
+    }
+}
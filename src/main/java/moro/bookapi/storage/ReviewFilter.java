@@ -0,0 +1,10 @@
+package moro.bookapi.storage;
+
+import java.time.LocalDateTime;
+
+/**
+ * Optional restrictions for {@link ReviewStore#exportReviews}; a null field
+ * does not restrict. {@code from} is inclusive, {@code to} exclusive.
+ */
+public record ReviewFilter(Long bookId, LocalDateTime from, LocalDateTime to) {
+}
@@ -0,0 +1,350 @@
+package moro.bookapi.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import moro.bookapi.model.Review;
+
+/**
+ * Append-only log of submitted reviews, written to memory-mapped segment
+ * files that are rotated once full. A review is acknowledged as soon as its
+ * record has been forced to disk; storing it in the database happens later.
+ *
+ * <p>Record layout: payload length (int), CRC32C of the payload (int), then
+ * the payload: sequence (long), book id (long), rating (int), created_at as
+ * UTC epoch second (long) and nanos (int), review text length (int, -1 for
+ * null) and the UTF-8 review text. A zero length or a checksum mismatch marks
+ * the end of a segment, which also discards a record torn by a crash.
+ */
+public class ReviewLog implements AutoCloseable {
+    private static final int HEADER_SIZE = 8;
+    private static final int FIXED_PAYLOAD_SIZE = 8 + 8 + 4 + 8 + 4 + 4;
+    private static final String SEGMENT_PREFIX = "reviews-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String NODE_ID_FILE = "node-id";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final List<LoggedReview> recovered = new ArrayList<>();
+    private final List<SealedSegment> sealed = new ArrayList<>();
+    private final Object appendLock = new Object();
+    // Sequences taken by appends that have not finished yet, guarded by appendLock
+    private final TreeSet<Long> inFlight = new TreeSet<>();
+
+    private Segment current;
+    private long nextSequence;
+    private boolean closed;
+
+    /**
+     * Opens the log and reads back every record above {@code checkpoint}. New
+     * records always go to a fresh segment, so a torn tail is never appended to.
+     */
+    public ReviewLog(Path directory, int segmentSize, long checkpoint) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+
+        long lastSequence = checkpoint;
+        int lastIndex = 0;
+        for (Path file : segmentFiles()) {
+            long segmentLast = recover(file, checkpoint);
+            sealed.add(new SealedSegment(file, segmentLast));
+            lastSequence = Math.max(lastSequence, segmentLast);
+            lastIndex = Math.max(lastIndex, segmentIndex(file));
+        }
+
+        this.nextSequence = lastSequence + 1;
+        this.current = Segment.create(segmentPath(lastIndex + 1), segmentSize);
+        truncateUpTo(checkpoint);
+    }
+
+    /**
+     * Node id of the instance writing the log in {@code directory}, created on
+     * first use. The database keeps one checkpoint per node id, so the id has
+     * to outlive restarts for the log to be replayed from its own checkpoint.
+     */
+    public static String nodeId(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(NODE_ID_FILE);
+        if (Files.exists(file)) {
+            return Files.readString(file, StandardCharsets.UTF_8).trim();
+        }
+        String nodeId = UUID.randomUUID().toString();
+        // Written next to the target and moved over it, so a crash never leaves half an id
+        Path temp = Files.createTempFile(directory, NODE_ID_FILE, ".tmp");
+        Files.writeString(temp, nodeId, StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        return nodeId;
+    }
+
+    /**
+     * Records found above the checkpoint when the log was opened, in sequence order.
+     */
+    public List<LoggedReview> recovered() {
+        return recovered;
+    }
+
+    /**
+     * Sequence of the last record written, or the checkpoint if there is none.
+     */
+    public long lastSequence() {
+        synchronized (appendLock) {
+            return nextSequence - 1;
+        }
+    }
+
+    /**
+     * Sequence up to which every append has finished, either published through
+     * {@code onAppended} or failed. Records above it may still show up, so
+     * anything that must not skip one stops here.
+     */
+    public long settledUpTo() {
+        synchronized (appendLock) {
+            return inFlight.isEmpty() ? nextSequence - 1 : inFlight.first() - 1;
+        }
+    }
+
+    /**
+     * Appends the review and returns once it is on disk. {@code onAppended} is
+     * called with the record's sequence once it has been forced, so nothing is
+     * published for an append that fails. Such a record may still be replayed
+     * after a restart, unless compaction has moved the checkpoint past it.
+     * Concurrent appenders share a single force where possible.
+     */
+    public long append(Review review, LongConsumer onAppended) throws IOException {
+        if (review.bookId() == null || review.rating() == null || review.createdAt() == null) {
+            throw new IllegalArgumentException("A logged review needs a book id, a rating and a creation time");
+        }
+        byte[] text = review.reviewText() != null ? review.reviewText().getBytes(StandardCharsets.UTF_8) : null;
+        int payloadSize = FIXED_PAYLOAD_SIZE + (text != null ? text.length : 0);
+        if (HEADER_SIZE + payloadSize > segmentSize) {
+            throw new IllegalArgumentException("Review of " + payloadSize + " bytes does not fit in a log segment");
+        }
+
+        // Encoded before a sequence is taken, the sequence is filled in last
+        ByteBuffer payload = ByteBuffer.allocate(payloadSize);
+        LocalDateTime createdAt = review.createdAt();
+        payload.putLong(0)
+                .putLong(review.bookId())
+                .putInt(review.rating())
+                .putLong(createdAt.toEpochSecond(ZoneOffset.UTC))
+                .putInt(createdAt.getNano())
+                .putInt(text != null ? text.length : -1);
+        if (text != null) {
+            payload.put(text);
+        }
+
+        long sequence;
+        Segment segment;
+        int end;
+        synchronized (appendLock) {
+            if (closed) {
+                throw new IllegalStateException("Review log is closed");
+            }
+            if (current.remaining() < HEADER_SIZE + payloadSize) {
+                rotate();
+            }
+            sequence = nextSequence++;
+            payload.putLong(0, sequence);
+            inFlight.add(sequence);
+            try {
+                end = current.write(payload.array(), sequence);
+            } catch (RuntimeException e) {
+                inFlight.remove(sequence);
+                throw e;
+            }
+            segment = current;
+        }
+
+        try {
+            segment.force(end);
+            onAppended.accept(sequence);
+        } finally {
+            synchronized (appendLock) {
+                inFlight.remove(sequence);
+            }
+        }
+        return sequence;
+    }
+
+    private void rotate() throws IOException {
+        current.force(current.written);
+        current.close();
+        sealed.add(new SealedSegment(current.file, current.lastSequence));
+        current = Segment.create(segmentPath(segmentIndex(current.file) + 1), segmentSize);
+    }
+
+    /**
+     * Deletes sealed segments whose records are all at or below the checkpoint.
+     */
+    public void truncateUpTo(long checkpoint) throws IOException {
+        synchronized (appendLock) {
+            Iterator<SealedSegment> segments = sealed.iterator();
+            while (segments.hasNext()) {
+                SealedSegment segment = segments.next();
+                if (segment.lastSequence() <= checkpoint) {
+                    Files.deleteIfExists(segment.file());
+                    segments.remove();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            if (!closed) {
+                closed = true;
+                current.force(current.written);
+                current.close();
+            }
+        }
+    }
+
+    private long recover(Path file, long checkpoint) throws IOException {
+        long lastSequence = -1;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int position = 0;
+            while (position + HEADER_SIZE <= buffer.capacity()) {
+                int length = buffer.getInt(position);
+                if (length < FIXED_PAYLOAD_SIZE || position + HEADER_SIZE + length > buffer.capacity()) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                buffer.get(position + HEADER_SIZE, payload);
+                CRC32C crc = new CRC32C();
+                crc.update(payload);
+                if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                    break;
+                }
+
+                LoggedReview record = decode(ByteBuffer.wrap(payload));
+                if (record.sequence() > checkpoint) {
+                    recovered.add(record);
+                }
+                lastSequence = record.sequence();
+                position += HEADER_SIZE + length;
+            }
+        }
+        return lastSequence;
+    }
+
+    private static LoggedReview decode(ByteBuffer payload) {
+        long sequence = payload.getLong();
+        long bookId = payload.getLong();
+        int rating = payload.getInt();
+        LocalDateTime createdAt = LocalDateTime.ofEpochSecond(payload.getLong(), payload.getInt(), ZoneOffset.UTC);
+        int textLength = payload.getInt();
+        String text = null;
+        if (textLength >= 0) {
+            byte[] bytes = new byte[textLength];
+            payload.get(bytes);
+            text = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new LoggedReview(sequence, new Review(bookId, rating, text, createdAt));
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted((a, b) -> Integer.compare(segmentIndex(a), segmentIndex(b)))
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(int index) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    private static int segmentIndex(Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private record SealedSegment(Path file, long lastSequence) {
+    }
+
+    /**
+     * The segment currently appended to. Writes happen under the log's append
+     * lock; forcing has its own lock so one force can cover several appends.
+     */
+    private static final class Segment {
+        private final Path file;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final Object forceLock = new Object();
+        private volatile int written;
+        private int forced;
+        private long lastSequence = -1;
+
+        private Segment(Path file, FileChannel channel, MappedByteBuffer buffer) {
+            this.file = file;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment create(Path file, int size) throws IOException {
+            FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                return new Segment(file, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        int remaining() {
+            return buffer.capacity() - written;
+        }
+
+        int write(byte[] payload, long sequence) {
+            CRC32C crc = new CRC32C();
+            crc.update(payload);
+            int position = written;
+            buffer.put(position + HEADER_SIZE, payload);
+            buffer.putInt(position + 4, (int) crc.getValue());
+            buffer.putInt(position, payload.length);
+            lastSequence = sequence;
+            // Publishing the new end after the bytes makes them visible to force()
+            written = position + HEADER_SIZE + payload.length;
+            return written;
+        }
+
+        void force(int end) {
+            synchronized (forceLock) {
+                if (forced >= end) {
+                    return;
+                }
+                int target = written;
+                buffer.force(forced, target - forced);
+                forced = target;
+            }
+        }
+
+        void close() throws IOException {
+            // The mapping stays valid until the buffer is garbage collected
+            channel.close();
+        }
+    }
+}
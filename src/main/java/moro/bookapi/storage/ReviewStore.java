@@ -0,0 +1,81 @@
+package moro.bookapi.storage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import moro.bookapi.model.RatingDto;
+import moro.bookapi.model.Review;
+import moro.bookapi.model.ReviewDto;
+
+/**
+ * All access to the {@code reviews} table goes through this interface, so the
+ * controllers do not care whether reviews live in one SQLite file or are
+ * spread over several shards.
+ */
+public interface ReviewStore {
+
+    /** Highest star rating a review can give; the lowest is 0. */
+    int MAX_RATING = 5;
+
+    void save(Review review);
+
+    List<ReviewDto> findByBookId(long bookId);
+
+    /**
+     * Average rating and review count of each of the given books that has reviews.
+     */
+    Map<Long, BookRating> findRatings(Collection<Long> bookIds);
+
+    /**
+     * Number of reviews per star rating (index 0 to {@link #MAX_RATING}) of every reviewed book.
+     */
+    Map<Long, long[]> countRatings();
+
+    /**
+     * Books ordered by average rating, best first.
+     */
+    List<BookRating> findTopRated(int n);
+
+    /**
+     * Books ordered by number of reviews, most reviewed first.
+     */
+    List<BookRating> findMostReviewed(int n);
+
+    /**
+     * Average rating per calendar month, oldest month first.
+     */
+    List<RatingDto> findAverageRatingPerMonth(long bookId);
+
+    /**
+     * Hands every review matching the filter to the consumer, in review id
+     * order, straight from a forward-only cursor. Nothing is collected, so
+     * memory use does not depend on the number of rows. Exported ids are
+     * unique across the store, which for a sharded store makes them differ
+     * from the per-shard {@code review_id}.
+     */
+    void exportReviews(ReviewFilter filter, Consumer<ExportedReview> consumer);
+
+    /**
+     * Highest review log sequence whose review is known to be stored.
+     */
+    long getLogCheckpoint();
+
+    /**
+     * Stores reviews taken from the review log and advances the checkpoint to
+     * {@code upToSequence} in the same transaction. Reviews at or below the
+     * current checkpoint are skipped, so replaying a batch after a crash does
+     * not duplicate them.
+     */
+    default void applyLogBatch(List<LoggedReview> batch, long upToSequence) {
+        applyLogBatch(batch, upToSequence, (reviews, commit) -> commit.run());
+    }
+
+    /**
+     * Same as {@link #applyLogBatch(List, long)}, with the commit handed to
+     * {@code publisher}. Everything else runs before, so the publisher can keep
+     * readers out for just the commit.
+     */
+    void applyLogBatch(List<LoggedReview> batch, long upToSequence, LogBatchPublisher publisher);
+}
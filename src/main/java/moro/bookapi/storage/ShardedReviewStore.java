@@ -0,0 +1,215 @@
+package moro.bookapi.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.ToLongFunction;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import moro.bookapi.model.RatingDto;
+import moro.bookapi.model.Review;
+import moro.bookapi.model.ReviewDto;
+
+/**
+ * Partitions reviews by book id over several stores, each with its own writer,
+ * so writes for different books no longer queue behind one file lock. Queries
+ * for a single book go to its shard; rankings are scatter-gathered from every
+ * shard and merged.
+ */
+public class ShardedReviewStore implements ReviewStore, AutoCloseable {
+    // Leaves 2^48 review ids per shard
+    private static final int SHARD_ID_SHIFT = 48;
+
+    private final List<ReviewStore> shards;
+    private final ExecutorService executor;
+
+    public ShardedReviewStore(List<? extends ReviewStore> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("At least one shard is required");
+        }
+        this.shards = List.copyOf(shards);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("review-shard-");
+        threadFactory.setDaemon(true);
+        this.executor = Executors.newFixedThreadPool(shards.size(), threadFactory);
+    }
+
+    public int shardOf(long bookId) {
+        return Math.floorMod(Long.hashCode(bookId), shards.size());
+    }
+
+    private ReviewStore shardFor(long bookId) {
+        return shards.get(shardOf(bookId));
+    }
+
+    @Override
+    public void save(Review review) {
+        shardFor(review.bookId()).save(review);
+    }
+
+    @Override
+    public List<ReviewDto> findByBookId(long bookId) {
+        return shardFor(bookId).findByBookId(bookId);
+    }
+
+    @Override
+    public List<RatingDto> findAverageRatingPerMonth(long bookId) {
+        return shardFor(bookId).findAverageRatingPerMonth(bookId);
+    }
+
+    @Override
+    public Map<Long, BookRating> findRatings(Collection<Long> bookIds) {
+        List<List<Long>> idsByShard = partition(bookIds, bookId -> bookId);
+        Map<Long, BookRating> ratings = new HashMap<>();
+        for (Map<Long, BookRating> shardRatings : scatter(shard -> idsByShard.get(shard).isEmpty()
+                ? Map.<Long, BookRating>of()
+                : shards.get(shard).findRatings(idsByShard.get(shard)))) {
+            ratings.putAll(shardRatings);
+        }
+        return ratings;
+    }
+
+    @Override
+    public Map<Long, long[]> countRatings() {
+        Map<Long, long[]> counts = new HashMap<>();
+        for (Map<Long, long[]> shardCounts : scatter(shard -> shards.get(shard).countRatings())) {
+            counts.putAll(shardCounts);
+        }
+        return counts;
+    }
+
+    @Override
+    public List<BookRating> findTopRated(int n) {
+        // A book lives in exactly one shard, so the global top n is contained in
+        // the union of every shard's top n
+        List<List<BookRating>> perShard = scatter(shard -> shards.get(shard).findTopRated(n));
+        return mergeTopK(perShard, n, BookRating.BEST_FIRST);
+    }
+
+    @Override
+    public List<BookRating> findMostReviewed(int n) {
+        List<List<BookRating>> perShard = scatter(shard -> shards.get(shard).findMostReviewed(n));
+        return mergeTopK(perShard, n, BookRating.MOST_REVIEWED_FIRST);
+    }
+
+    /**
+     * Review ids only count per shard, so exported ids carry the shard in their
+     * high bits. That makes them unique and puts whole shards in id order, so
+     * shards are exported one after the other with one cursor open at a time.
+     */
+    @Override
+    public void exportReviews(ReviewFilter filter, Consumer<ExportedReview> consumer) {
+        if (filter.bookId() != null) {
+            int shard = shardOf(filter.bookId());
+            shards.get(shard).exportReviews(filter, review -> consumer.accept(withShardId(shard, review)));
+            return;
+        }
+        for (int shard = 0; shard < shards.size(); shard++) {
+            int current = shard;
+            shards.get(shard).exportReviews(filter, review -> consumer.accept(withShardId(current, review)));
+        }
+    }
+
+    private static ExportedReview withShardId(int shard, ExportedReview review) {
+        long reviewId = ((long) shard << SHARD_ID_SHIFT) | review.reviewId();
+        return new ExportedReview(reviewId, review.bookId(), review.rating(), review.reviewText(), review.createdAt());
+    }
+
+    /**
+     * Every shard keeps its own checkpoint, the log is only safe to drop up to the lowest one.
+     */
+    @Override
+    public long getLogCheckpoint() {
+        long checkpoint = Long.MAX_VALUE;
+        for (long shardCheckpoint : scatter(shard -> shards.get(shard).getLogCheckpoint())) {
+            checkpoint = Math.min(checkpoint, shardCheckpoint);
+        }
+        return checkpoint;
+    }
+
+    @Override
+    public void applyLogBatch(List<LoggedReview> batch, long upToSequence, LogBatchPublisher publisher) {
+        // Shards without reviews in this batch still advance their checkpoint
+        List<List<LoggedReview>> batchByShard = partition(batch, logged -> logged.review().bookId());
+        scatter(shard -> {
+            shards.get(shard).applyLogBatch(batchByShard.get(shard), upToSequence, publisher);
+            return null;
+        });
+    }
+
+    private <E> List<List<E>> partition(Collection<E> items, ToLongFunction<E> bookId) {
+        List<List<E>> partitions = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            partitions.add(new ArrayList<>());
+        }
+        for (E item : items) {
+            partitions.get(shardOf(bookId.applyAsLong(item))).add(item);
+        }
+        return partitions;
+    }
+
+    /**
+     * K-way merge of lists that are each already sorted best first.
+     */
+    static List<BookRating> mergeTopK(List<List<BookRating>> sortedLists, int k, Comparator<BookRating> order) {
+        // Heap entries are {list index, position in list}
+        PriorityQueue<int[]> heads = new PriorityQueue<>(
+                Comparator.comparing((int[] head) -> sortedLists.get(head[0]).get(head[1]), order));
+        for (int i = 0; i < sortedLists.size(); i++) {
+            if (!sortedLists.get(i).isEmpty()) {
+                heads.add(new int[] { i, 0 });
+            }
+        }
+
+        List<BookRating> merged = new ArrayList<>(k);
+        while (merged.size() < k && !heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<BookRating> list = sortedLists.get(head[0]);
+            merged.add(list.get(head[1]));
+            if (head[1] + 1 < list.size()) {
+                heads.add(new int[] { head[0], head[1] + 1 });
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Runs the query for every shard index in parallel and returns the results in shard order.
+     */
+    <T> List<T> scatter(IntFunction<T> query) {
+        List<CompletableFuture<T>> futures = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            int shard = i;
+            futures.add(CompletableFuture.supplyAsync(() -> query.apply(shard), executor));
+        }
+
+        List<T> results = new ArrayList<>(shards.size());
+        try {
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            // Surface the shard's own exception (usually a DataAccessException)
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,96 @@
+package moro.bookapi.storage;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * One SQLite file opened as a single serialized writer plus a pool of
+ * read-only connections. The file is switched to WAL journaling so readers
+ * keep working on the last committed snapshot while the writer commits.
+ */
+public class SqliteDatabase implements AutoCloseable {
+    private final String url;
+    private final BasicDataSource writeDataSource;
+    private final BasicDataSource readDataSource;
+    private final JdbcTemplate writeJdbcTemplate;
+    private final JdbcTemplate readJdbcTemplate;
+    private final TransactionTemplate writeTransaction;
+
+    public SqliteDatabase(String url, StorageProperties properties) {
+        this.url = url;
+        String busyTimeout = "PRAGMA busy_timeout = " + properties.getBusyTimeout().toMillis();
+
+        // SQLite allows one writer at a time anyway, a single connection turns
+        // lock contention into an orderly queue on the pool
+        this.writeDataSource = pool(url, 1, properties, List.of(
+                "PRAGMA journal_mode = WAL",
+                "PRAGMA synchronous = " + properties.getSynchronous().name(),
+                busyTimeout));
+        this.readDataSource = pool(url, properties.getReaders(), properties, List.of(
+                busyTimeout,
+                "PRAGMA query_only = 1"));
+        this.writeJdbcTemplate = new JdbcTemplate(writeDataSource);
+        this.readJdbcTemplate = new JdbcTemplate(readDataSource);
+        this.writeTransaction = new TransactionTemplate(new DataSourceTransactionManager(writeDataSource));
+
+        // Open the writer first so the file is in WAL mode before any reader attaches
+        writeJdbcTemplate.execute((ConnectionCallback<Void>) con -> null);
+    }
+
+    private static BasicDataSource pool(String url, int size, StorageProperties properties, List<String> pragmas) {
+        BasicDataSource dataSource = new BasicDataSource();
+        dataSource.setDriverClassName("org.sqlite.JDBC");
+        dataSource.setUrl(url);
+        dataSource.setMaxTotal(size);
+        dataSource.setMaxIdle(size);
+        dataSource.setMaxWaitMillis(properties.getMaxWait().toMillis());
+        dataSource.setConnectionInitSqls(pragmas);
+        dataSource.setPoolPreparedStatements(true);
+        dataSource.setMaxOpenPreparedStatements(properties.getStatementCacheSize());
+        return dataSource;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public DataSource getWriteDataSource() {
+        return writeDataSource;
+    }
+
+    public DataSource getReadDataSource() {
+        return readDataSource;
+    }
+
+    public JdbcTemplate writer() {
+        return writeJdbcTemplate;
+    }
+
+    public JdbcTemplate reader() {
+        return readJdbcTemplate;
+    }
+
+    /**
+     * Runs several writer statements as one transaction.
+     */
+    public TransactionTemplate writeTransaction() {
+        return writeTransaction;
+    }
+
+    @Override
+    public void close() throws SQLException {
+        try {
+            readDataSource.close();
+        } finally {
+            writeDataSource.close();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package moro.bookapi.storage;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The SQLite files reviews are partitioned over. Shard 0 is the configured
+ * database itself, so a single-shard setup keeps using the existing file;
+ * shard i lives next to it as {@code <name>-shard<i>.db}.
+ */
+public class SqliteShards implements AutoCloseable {
+    private final List<SqliteDatabase> databases = new ArrayList<>();
+
+    public SqliteShards(String url, StorageProperties properties) {
+        if (properties.getShards() < 1) {
+            throw new IllegalArgumentException("bookapi.storage.shards must be at least 1");
+        }
+        try {
+            for (int i = 0; i < properties.getShards(); i++) {
+                databases.add(new SqliteDatabase(shardUrl(url, i), properties));
+            }
+        } catch (RuntimeException e) {
+            closeQuietly();
+            throw e;
+        }
+    }
+
+    static String shardUrl(String url, int shard) {
+        if (shard == 0) {
+            return url;
+        }
+        int extension = url.lastIndexOf(".db");
+        return extension >= 0
+                ? url.substring(0, extension) + "-shard" + shard + url.substring(extension)
+                : url + "-shard" + shard;
+    }
+
+    public SqliteDatabase get(int shard) {
+        return databases.get(shard);
+    }
+
+    public List<SqliteDatabase> all() {
+        return databases;
+    }
+
+    public int size() {
+        return databases.size();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        SQLException failure = null;
+        for (SqliteDatabase database : databases) {
+            try {
+                database.close();
+            } catch (SQLException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (SQLException ignored) {
+            // Already failing, the original exception is more useful
+        }
+    }
+}
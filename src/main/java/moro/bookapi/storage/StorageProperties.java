@@ -0,0 +1,207 @@
+package moro.bookapi.storage;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Tuning knobs for the SQLite review database, bound from {@code bookapi.storage.*}.
+ */
+@ConfigurationProperties("bookapi.storage")
+public class StorageProperties {
+
+    public enum Synchronous {
+        OFF, NORMAL, FULL, EXTRA
+    }
+
+    /** Number of SQLite files reviews are partitioned over by book id. Changing it requires re-partitioning existing data. */
+    private int shards = 1;
+
+    /** Size of the read-only connection pool of each shard. */
+    private int readers = Runtime.getRuntime().availableProcessors();
+
+    /** NORMAL is durable across application crashes in WAL mode, only an OS crash can lose the last commits. */
+    private Synchronous synchronous = Synchronous.NORMAL;
+
+    /** How long a connection waits on a locked database before failing with SQLITE_BUSY. */
+    private Duration busyTimeout = Duration.ofSeconds(5);
+
+    /** How long a caller waits for a free pooled connection. */
+    private Duration maxWait = Duration.ofSeconds(30);
+
+    /** Prepared statements cached per connection. */
+    private int statementCacheSize = 64;
+
+    /**
+     * Marks this instance's rows in the review_changes feed and keys its review
+     * log checkpoint. Unset, it is random per start, or kept in the log
+     * directory while the review log is enabled. Must differ between instances.
+     */
+    private String nodeId;
+
+    private final Log log = new Log();
+
+    private final ReviewCache reviewCache = new ReviewCache();
+
+    public int getShards() {
+        return shards;
+    }
+
+    public void setShards(int shards) {
+        this.shards = shards;
+    }
+
+    public int getReaders() {
+        return readers;
+    }
+
+    public void setReaders(int readers) {
+        this.readers = readers;
+    }
+
+    public Synchronous getSynchronous() {
+        return synchronous;
+    }
+
+    public void setSynchronous(Synchronous synchronous) {
+        this.synchronous = synchronous;
+    }
+
+    public Duration getBusyTimeout() {
+        return busyTimeout;
+    }
+
+    public void setBusyTimeout(Duration busyTimeout) {
+        this.busyTimeout = busyTimeout;
+    }
+
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    public void setMaxWait(Duration maxWait) {
+        this.maxWait = maxWait;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    public void setStatementCacheSize(int statementCacheSize) {
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public Log getLog() {
+        return log;
+    }
+
+    public ReviewCache getReviewCache() {
+        return reviewCache;
+    }
+
+    /**
+     * Optional write-behind review log, see {@link LoggedReviewStore}.
+     */
+    public static class Log {
+
+        private boolean enabled = false;
+
+        /** Directory holding the log segments. */
+        private String directory = "review-log";
+
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+        /** Pause between two compaction runs into the database. */
+        private Duration compactionInterval = Duration.ofMillis(200);
+
+        /** Reviews inserted per database transaction during compaction. */
+        private int compactionBatchSize = 1000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public DataSize getSegmentSize() {
+            return segmentSize;
+        }
+
+        public void setSegmentSize(DataSize segmentSize) {
+            this.segmentSize = segmentSize;
+        }
+
+        public Duration getCompactionInterval() {
+            return compactionInterval;
+        }
+
+        public void setCompactionInterval(Duration compactionInterval) {
+            this.compactionInterval = compactionInterval;
+        }
+
+        public int getCompactionBatchSize() {
+            return compactionBatchSize;
+        }
+
+        public void setCompactionBatchSize(int compactionBatchSize) {
+            this.compactionBatchSize = compactionBatchSize;
+        }
+    }
+
+    /**
+     * Optional off-heap cache of review texts, see {@link CachedReviewStore}.
+     */
+    public static class ReviewCache {
+
+        private boolean enabled = false;
+
+        /** Hard limit on the direct memory holding cached reviews. */
+        private DataSize maxSize = DataSize.ofMegabytes(64);
+
+        /** Allocation unit, a cached book occupies at least one block. */
+        private DataSize blockSize = DataSize.ofKilobytes(4);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public DataSize getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(DataSize maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public DataSize getBlockSize() {
+            return blockSize;
+        }
+
+        public void setBlockSize(DataSize blockSize) {
+            this.blockSize = blockSize;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+-- Same layout Hibernate used to generate for the Review entity, so existing
+-- databases are left untouched
+CREATE TABLE IF NOT EXISTS reviews (
+    review_id integer,
+    book_id bigint not null,
+    created_at timestamp not null,
+    rating integer not null,
+    review_text varchar(1000),
+    primary key (review_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_reviews_book_id ON reviews (book_id);
+
+-- Highest review log sequence stored in this database (see LoggedReviewStore)
+CREATE TABLE IF NOT EXISTS review_log_checkpoint (
+    id integer primary key check (id = 0),
+    sequence bigint not null
+);
+
+INSERT OR IGNORE INTO review_log_checkpoint (id, sequence) VALUES (0, 0);
@@ -0,0 +1,12 @@
+-- Feed of submitted reviews, in commit order. Every instance sharing this
+-- database polls it past its own high-water mark to update its in-memory
+-- aggregates and caches (see ReviewChangeFeed). AUTOINCREMENT keeps ids
+-- increasing even after old rows are pruned.
+CREATE TABLE IF NOT EXISTS review_changes (
+    change_id integer primary key autoincrement,
+    book_id bigint not null,
+    rating integer not null,
+    created_at timestamp not null,
+    origin varchar(36) not null,
+    recorded_at bigint not null
+);
@@ -0,0 +1,13 @@
+-- Highest review log sequence stored in this database, per instance: every
+-- instance numbers its log independently (see LoggedReviewStore). The single
+-- checkpoint kept so far waits under the empty node id until the first
+-- instance with the log enabled claims it.
+CREATE TABLE IF NOT EXISTS review_log_checkpoints (
+    node_id varchar(36) primary key,
+    sequence bigint not null
+);
+
+INSERT OR IGNORE INTO review_log_checkpoints (node_id, sequence)
+    SELECT '', sequence FROM review_log_checkpoint WHERE sequence > 0;
+
+DROP TABLE review_log_checkpoint;
@@ -3,7 +3,10 @@ package moro.bookapi;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:sqlite:target/bookapi-test.db",
+		"bookapi.cache.warmup.enabled=false"
+})
 class BookapiApplicationTests {
 
 	@Test
@@ -2,11 +2,17 @@ package moro.bookapi.controller;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -17,30 +23,57 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.dao.DataAccessException;
-import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.RowMapper;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import moro.bookapi.gutendex.BookMetadataCache;
+import moro.bookapi.gutendex.GutendexClient;
 import moro.bookapi.model.BookDto;
 import moro.bookapi.model.RatingDto;
+import moro.bookapi.model.RatingStatsDto;
+import moro.bookapi.search.SearchPagePrefetcher;
+import moro.bookapi.stats.RatingHistograms;
+import moro.bookapi.stats.TrendingCounters;
+import moro.bookapi.storage.BookRating;
+import moro.bookapi.storage.ReviewStore;
 
 class BookControllerTests {
 
     @MockBean
-    private JdbcTemplate jdbcTemplate;
+    private ReviewStore reviewStore;
 
     @MockBean
     private RestTemplate restTemplate;
 
+    @MockBean
+    private RatingHistograms ratingHistograms;
+
+    @MockBean
+    private TrendingCounters trendingCounters;
+
+    private GutendexClient gutendexClient;
+
+    @MockBean
+    private SearchPagePrefetcher searchPagePrefetcher;
+
     private BookController bookController;
 
     @BeforeEach
     public void setUp() {
         restTemplate = mock(RestTemplate.class);
-        jdbcTemplate = mock(JdbcTemplate.class);
-        bookController = new BookController(jdbcTemplate, restTemplate);
+        reviewStore = mock(ReviewStore.class);
+        ratingHistograms = mock(RatingHistograms.class);
+        trendingCounters = mock(TrendingCounters.class);
+        gutendexClient = new GutendexClient(restTemplate, new BookMetadataCache(100));
+        searchPagePrefetcher = mock(SearchPagePrefetcher.class);
+        // Mockito would answer with an empty map, which looks like a prefetched page
+        when(searchPagePrefetcher.take(anyString(), anyInt())).thenReturn(null);
+        bookController = new BookController(reviewStore, restTemplate, ratingHistograms, trendingCounters, gutendexClient,
+                searchPagePrefetcher);
     }
 
     @Test
@@ -85,6 +118,29 @@ class BookControllerTests {
         assertNotNull(response);
         assertEquals(1, response.get("count"));
     }
+    @Test
+    void getBooksRequestsTheGivenPageTest() {
+        when(restTemplate.getForObject(anyString(), eq(String.class))).thenReturn("{ \"count\": 0, \"results\": [] }");
+
+        bookController.getBooks("Great Gatsby", 2);
+
+        verify(restTemplate).getForObject("https://gutendex.com/books?search=Great+Gatsby&page=2", String.class);
+    }
+
+    @Test
+    void getBooksServesPrefetchedPageTest() {
+        Map<String, Object> prefetched = new HashMap<>();
+        prefetched.put("count", 40);
+        prefetched.put("next", "https://gutendex.com/books/?page=3&search=test");
+        when(searchPagePrefetcher.take("test", 2)).thenReturn(prefetched);
+
+        Map<String, Object> response = bookController.getBooks("test", 2);
+
+        assertSame(prefetched, response);
+        verifyNoInteractions(restTemplate);
+        verify(searchPagePrefetcher).served(eq("test"), eq(2), eq(true), any());
+    }
+
      @Test
     void getBooksEmptyTitleTest() {
         // Mock external API response for empty title
@@ -123,7 +179,7 @@ class BookControllerTests {
     ratingDto.setMonth(11);
     ratingDto.setAverageRating(5);
     mockDbResponse.add(ratingDto);
-    when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyInt())).thenReturn(mockDbResponse);
+    when(reviewStore.findAverageRatingPerMonth(anyLong())).thenReturn(mockDbResponse);
 
     // Call getAverageRatingPerMonth method
     Map<String, Object> response = bookController.getAverageRatingPerMonth(1);
@@ -138,10 +194,26 @@ class BookControllerTests {
     assertEquals(1, ((List) response.get("monthlyRatings")).size());
     }
 
+    @Test
+    void getAverageRatingPerMonthKeepsReviewCountsInternalTest() throws Exception {
+        RatingDto ratingDto = new RatingDto();
+        ratingDto.setYear(2023);
+        ratingDto.setMonth(11);
+        ratingDto.setAverageRating(4.5);
+        ratingDto.setReviewCount(2);
+        when(reviewStore.findAverageRatingPerMonth(anyLong())).thenReturn(List.of(ratingDto));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(bookController).build();
+
+        mockMvc.perform(get("/averageRatingPerMonth").param("bookId", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.monthlyRatings[0].averageRating").value(4.5))
+                .andExpect(jsonPath("$.monthlyRatings[0].reviewCount").doesNotExist());
+    }
+
     @Test
     void getAverageRatingPerMonthNoRatingsTest() {
         // Mock database response for no ratings
-        when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyInt())).thenReturn(new ArrayList<>());
+        when(reviewStore.findAverageRatingPerMonth(anyLong())).thenReturn(new ArrayList<>());
 
         // Call getAverageRatingPerMonth method
         Map<String, Object> response = bookController.getAverageRatingPerMonth(1);
@@ -154,7 +226,7 @@ class BookControllerTests {
     @Test
     void getAverageRatingPerMonthExceptionHandlingTest() {
         // Simulate a DataAccessException
-        when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyInt())).thenThrow(new DataAccessException("Error") {});
+        when(reviewStore.findAverageRatingPerMonth(anyLong())).thenThrow(new DataAccessException("Error") {});
 
         // Call getAverageRatingPerMonth method and expect an error response
         Map<String, Object> response = bookController.getAverageRatingPerMonth(1);
@@ -163,12 +235,10 @@ class BookControllerTests {
     @Test
     void getTopBooksSuccessTest() {
         // Mock database response
-        List<BookDto> mockDbResponse = new ArrayList<>();
-        BookDto bookDto = new BookDto();
-        bookDto.setId(1);
-        bookDto.setRating(4.5);
-        mockDbResponse.add(bookDto);
-        when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyInt())).thenReturn(mockDbResponse);
+        List<BookRating> mockDbResponse = new ArrayList<>();
+        mockDbResponse.add(new BookRating(1, 4.5, 2));
+        when(reviewStore.findTopRated(anyInt())).thenReturn(mockDbResponse);
+        when(restTemplate.getForObject(anyString(), eq(String.class))).thenReturn("{ \"results\": [] }");
 
         // Call getTopBooks method
         Map<String, Object> response = bookController.getTopBooks(1);
@@ -192,18 +262,11 @@ class BookControllerTests {
     @Test
     void getTopBooksSortedTest() {
         // Mock database response
-        List<BookDto> mockDbResponse = new ArrayList<>();
-        BookDto bookDto1 = new BookDto();
-        bookDto1.setId(1);
-        bookDto1.setRating(4.5);
-        mockDbResponse.add(bookDto1);
-
-        BookDto bookDto2 = new BookDto();
-        bookDto2.setId(2);
-        bookDto2.setRating(3.8);
-        mockDbResponse.add(bookDto2);
-
-        when(jdbcTemplate.query(anyString(), any(RowMapper.class), anyInt())).thenReturn(mockDbResponse);
+        List<BookRating> mockDbResponse = new ArrayList<>();
+        mockDbResponse.add(new BookRating(1, 4.5, 2));
+        mockDbResponse.add(new BookRating(2, 3.8, 5));
+        when(reviewStore.findTopRated(anyInt())).thenReturn(mockDbResponse);
+        when(restTemplate.getForObject(anyString(), eq(String.class))).thenReturn("{ \"results\": [] }");
 
         // Call getTopBooks method
         Map<String, Object> response = bookController.getTopBooks(2);
@@ -281,4 +344,120 @@ class BookControllerTests {
         // Call getBookById method and expect a ResponseStatusException
         assertThrows(ResponseStatusException.class, () -> bookController.getBookById(1));
     }
+
+    @Test
+    void getRatingStatsInRequestOrderTest() {
+        RatingStatsDto first = new RatingStatsDto();
+        first.setBookId(2);
+        RatingStatsDto second = new RatingStatsDto();
+        second.setBookId(1);
+        when(ratingHistograms.stats(2L)).thenReturn(first);
+        when(ratingHistograms.stats(1L)).thenReturn(second);
+
+        Map<String, Object> response = bookController.getRatingStats(List.of(2L, 1L));
+
+        assertEquals(List.of(first, second), response.get("books"));
+    }
+
+    @Test
+    void getRatingStatsWithMissingIdsIsABadRequestTest() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(bookController).build();
+
+        mockMvc.perform(get("/books/ratingStats").param("ids", "1,,2")).andExpect(status().isBadRequest());
+
+        verifyNoInteractions(ratingHistograms);
+    }
+
+    @Test
+    void getRatingStatsTooManyIdsTest() {
+        List<Long> bookIds = new ArrayList<>();
+        for (long id = 0; id <= 100; id++) {
+            bookIds.add(id);
+        }
+
+        Map<String, Object> response = bookController.getRatingStats(bookIds);
+
+        assertTrue(response.containsKey("error"));
+        verifyNoInteractions(ratingHistograms);
+    }
+
+    @Test
+    void getTrendingBooksInvalidWindowTest() {
+        Map<String, Object> response = bookController.getTrendingBooks("1y", 10);
+
+        assertTrue(response.containsKey("error"));
+        verifyNoInteractions(trendingCounters);
+    }
+
+    @Test
+    void getBooksByIdsKeepsRequestOrderTest() {
+        when(restTemplate.getForObject(anyString(), eq(String.class))).thenReturn("{\"results\": [" +
+                "{\"id\": 3, \"title\": \"Third\", \"authors\": [], \"languages\": [\"en\"], \"download_count\": 1}, " +
+                "{\"id\": 1, \"title\": \"First\", \"authors\": [], \"languages\": [\"en\"], \"download_count\": 1}]}");
+        Map<Long, BookRating> ratings = new HashMap<>();
+        ratings.put(1L, new BookRating(1, 4.5, 2));
+        when(reviewStore.findRatings(any())).thenReturn(ratings);
+
+        Map<String, Object> response = bookController.getBooksByIds(List.of(3L, 2L, 1L, 3L));
+
+        List<BookDto> books = (List<BookDto>) response.get("books");
+        assertEquals(List.of(3L, 1L), books.stream().map(BookDto::getId).toList());
+        assertEquals(List.of(2L), response.get("notFound"));
+        assertEquals(0, books.get(0).getRating());
+        assertEquals(4.5, books.get(1).getRating());
+        // Duplicates are looked up once
+        verify(restTemplate).getForObject("https://gutendex.com/books?ids=3,2,1", String.class);
+    }
+
+    @Test
+    void getBooksWithIdsIsMappedToTheBulkLookupTest() throws Exception {
+        when(restTemplate.getForObject(anyString(), eq(String.class))).thenReturn("{\"results\": [" +
+                "{\"id\": 1, \"title\": \"First\", \"authors\": [], \"languages\": [\"en\"], \"download_count\": 1}]}");
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(bookController).build();
+
+        mockMvc.perform(get("/books").param("ids", "1,2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books[0].id").value(1))
+                .andExpect(jsonPath("$.notFound[0]").value(2));
+
+        verify(restTemplate).getForObject("https://gutendex.com/books?ids=1,2", String.class);
+    }
+
+    @Test
+    void getBooksWithMissingOrNonPositiveIdsIsABadRequestTest() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(bookController).build();
+
+        mockMvc.perform(get("/books").param("ids", "1,,2")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/books").param("ids", "1,0")).andExpect(status().isBadRequest());
+        mockMvc.perform(post("/books").contentType(MediaType.APPLICATION_JSON).content("[1,null]"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(restTemplate, reviewStore);
+    }
+
+    @Test
+    void getBooksByIdsUpstreamErrorTest() {
+        when(restTemplate.getForObject(anyString(), eq(String.class))).thenThrow(new RestClientException("Error"));
+
+        Map<String, Object> response = bookController.postBooksByIds(List.of(1L));
+
+        assertTrue(response.containsKey("error"));
+    }
+
+    @Test
+    void getTopBooksFetchesDetailsInOneRequestTest() {
+        List<BookRating> ranked = new ArrayList<>();
+        ranked.add(new BookRating(1, 4.5, 2));
+        ranked.add(new BookRating(2, 3.8, 5));
+        when(reviewStore.findTopRated(anyInt())).thenReturn(ranked);
+        when(restTemplate.getForObject(anyString(), eq(String.class))).thenReturn("{\"results\": [" +
+                "{\"id\": 2, \"title\": \"Second\", \"authors\": [], \"languages\": [\"en\"], \"download_count\": 1}]}");
+
+        List<BookDto> topBooks = (List<BookDto>) bookController.getTopBooks(2).get("books");
+
+        assertEquals(List.of(1L, 2L), topBooks.stream().map(BookDto::getId).toList());
+        assertNull(topBooks.get(0).getTitle());
+        assertEquals("Second", topBooks.get(1).getTitle());
+        verify(restTemplate, times(1)).getForObject("https://gutendex.com/books?ids=1,2", String.class);
+    }
 }
@@ -0,0 +1,103 @@
+package moro.bookapi.controller;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ResponseStatusException;
+
+import moro.bookapi.model.BookDto;
+import moro.bookapi.storage.BookRating;
+import moro.bookapi.storage.ReviewStore;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+class BookStreamControllerTests {
+
+    private static final String BOOK_RESPONSE = "{\n" +
+            "  \"count\": 2,\n" +
+            "  \"results\": [\n" +
+            "    {\"id\": 1, \"title\": \"First Book\", \"authors\": [], \"languages\": [\"en\"], \"download_count\": 10},\n" +
+            "    {\"id\": 2, \"title\": \"Second Book\", \"authors\": [], \"languages\": [\"en\"], \"download_count\": 20}\n" +
+            "  ]\n" +
+            "}";
+
+    private ReviewStore reviewStore;
+
+    private List<String> requestedUrls;
+
+    private BookStreamController controller(HttpStatus status, String body) {
+        WebClient webClient = WebClient.builder()
+                .baseUrl("https://gutendex.com")
+                .exchangeFunction(request -> {
+                    requestedUrls.add(request.url().toString());
+                    return Mono.just(ClientResponse.create(status)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body(body)
+                            .build());
+                })
+                .build();
+        return new BookStreamController(webClient, reviewStore, Schedulers.immediate(), 4);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        reviewStore = mock(ReviewStore.class);
+        requestedUrls = new ArrayList<>();
+    }
+
+    @Test
+    void streamBooksEmitsEveryResultTest() {
+        List<BookDto> books = controller(HttpStatus.OK, BOOK_RESPONSE).streamBooks("book", 2).collectList().block();
+
+        assertEquals(2, books.size());
+        assertEquals("https://gutendex.com/books?search=book&page=2", requestedUrls.get(0));
+        // Books without reviews default to an empty list and a zero rating
+        assertTrue(books.get(0).getReviews().isEmpty());
+        assertEquals(0, books.get(0).getRating());
+    }
+
+    @Test
+    void streamBooksInvalidPageTest() {
+        BookStreamController controller = controller(HttpStatus.OK, BOOK_RESPONSE);
+        assertThrows(ResponseStatusException.class, () -> controller.streamBooks("book", 0).blockFirst());
+        assertTrue(requestedUrls.isEmpty());
+    }
+
+    @Test
+    void streamBooksUpstreamErrorTest() {
+        BookStreamController controller = controller(HttpStatus.BAD_GATEWAY, "");
+        assertThrows(ResponseStatusException.class, () -> controller.streamBooks("book", 1).blockFirst());
+    }
+
+    @Test
+    void streamTopBooksKeepsRankingOrderTest() {
+        List<BookRating> ranked = new ArrayList<>();
+        ranked.add(new BookRating(1, 4.5, 2));
+        ranked.add(new BookRating(2, 3.8, 5));
+        when(reviewStore.findTopRated(anyInt())).thenReturn(ranked);
+
+        List<BookDto> books = controller(HttpStatus.OK, BOOK_RESPONSE).streamTopBooks(2).collectList().block();
+
+        assertEquals(2, books.size());
+        assertEquals(4.5, books.get(0).getRating());
+        assertEquals(3.8, books.get(1).getRating());
+        assertNotNull(books.get(0).getTitle());
+    }
+
+    @Test
+    void streamTopBooksInvalidNumberTest() {
+        BookStreamController controller = controller(HttpStatus.OK, BOOK_RESPONSE);
+        assertThrows(ResponseStatusException.class, () -> controller.streamTopBooks(0).blockFirst());
+    }
+}
@@ -1,36 +1,66 @@
 package moro.bookapi.controller;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-
-import javax.sql.DataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import moro.bookapi.model.Review;
+import moro.bookapi.search.SearchPagePrefetcher;
+import moro.bookapi.stats.RatingHistograms;
+import moro.bookapi.stats.TrendingCounters;
+import moro.bookapi.storage.ExportedReview;
+import moro.bookapi.storage.ReviewFilter;
+import moro.bookapi.storage.ReviewStore;
 
 public class ReviewControllerTests {
 
     @MockBean
-    private JdbcTemplate jdbcTemplate;
+    private ReviewStore reviewStore;
+
+    @MockBean
+    private RatingHistograms ratingHistograms;
 
     @MockBean
-    private DataSource dataSource;
+    private TrendingCounters trendingCounters;
+
+    @MockBean
+    private SearchPagePrefetcher searchPagePrefetcher;
 
     @InjectMocks
     private ReviewController reviewController;
 
     @BeforeEach
     public void setup() {
-        jdbcTemplate = mock(JdbcTemplate.class);
-        dataSource = mock(DataSource.class);
-        reviewController = new ReviewController(dataSource);
+        reviewStore = mock(ReviewStore.class);
+        ratingHistograms = mock(RatingHistograms.class);
+        trendingCounters = mock(TrendingCounters.class);
+        searchPagePrefetcher = mock(SearchPagePrefetcher.class);
+        reviewController = new ReviewController(reviewStore, ratingHistograms, trendingCounters, searchPagePrefetcher);
     }
 
     @Test
@@ -44,6 +74,15 @@ public class ReviewControllerTests {
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
     }
 
+    @Test
+    public void testSubmitReviewWithoutBookId() {
+        Review review = new Review(null, 4, "Great book!");
+
+        ResponseEntity<Review> response = reviewController.submitReview(review);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(reviewStore);
+    }
+
     @Test
     public void testSubmitReviewOverFiveStars() {
         long bookId = 1;
@@ -65,4 +104,112 @@ public class ReviewControllerTests {
         ResponseEntity<Review> response = reviewController.submitReview(review);
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
     }
+
+    @Test
+    public void testSubmitValidReview() {
+        Review review = new Review(1L, 4, "Great book!");
+
+        ResponseEntity<Review> response = reviewController.submitReview(review);
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        verify(reviewStore).save(review);
+        verify(ratingHistograms).record(1L, 4);
+        verify(trendingCounters).record(1L, 4, review.createdAt());
+        verify(searchPagePrefetcher).invalidateBooks(List.of(1L));
+    }
+
+    @Test
+    public void testFailedReviewKeepsPrefetchedPages() {
+        Review review = new Review(1L, 4, "Great book!");
+        doThrow(new IllegalStateException("Database is gone")).when(reviewStore).save(review);
+
+        ResponseEntity<Review> response = reviewController.submitReview(review);
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
+        verifyNoInteractions(searchPagePrefetcher);
+    }
+
+    private void exportRows(ExportedReview... rows) {
+        doAnswer(invocation -> {
+            Consumer<ExportedReview> consumer = invocation.getArgument(1);
+            for (ExportedReview row : rows) {
+                consumer.accept(row);
+            }
+            return null;
+        }).when(reviewStore).exportReviews(any(), any());
+    }
+
+    private byte[] body(ResponseEntity<StreamingResponseBody> response) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testExportReviewsAsNdjson() throws Exception {
+        exportRows(new ExportedReview(1, 7, 5, "Say \"hi\"", "2023-11-05T12:30:15"),
+                new ExportedReview(2, 7, 3, null, "2023-11-06T08:00:00"));
+
+        ResponseEntity<StreamingResponseBody> response = reviewController.exportReviews(7L, null, null, "ndjson", null, new MockHttpServletRequest());
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("{\"reviewId\":1,\"bookId\":7,\"rating\":5,\"createdAt\":\"2023-11-05T12:30:15\",\"reviewText\":\"Say \\\"hi\\\"\"}\n" +
+                     "{\"reviewId\":2,\"bookId\":7,\"rating\":3,\"createdAt\":\"2023-11-06T08:00:00\",\"reviewText\":null}\n",
+                new String(body(response), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testExportReviewsAsGzippedCsv() throws Exception {
+        exportRows(new ExportedReview(1, 7, 5, "Short, but \"sweet\"", "2023-11-05T12:30:15"));
+
+        ResponseEntity<StreamingResponseBody> response = reviewController.exportReviews(null,
+                LocalDate.of(2023, 11, 1), LocalDate.of(2023, 11, 30), "csv", "gzip, deflate", new MockHttpServletRequest());
+
+        assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body(response)))) {
+            assertEquals("reviewId,bookId,rating,createdAt,reviewText\r\n" +
+                         "1,7,5,2023-11-05T12:30:15,\"Short, but \"\"sweet\"\"\"\r\n",
+                    new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        // "to" covers the whole last day
+        ArgumentCaptor<ReviewFilter> filter = ArgumentCaptor.forClass(ReviewFilter.class);
+        verify(reviewStore).exportReviews(filter.capture(), any());
+        assertEquals(LocalDateTime.of(2023, 12, 1, 0, 0), filter.getValue().to());
+    }
+
+    @Test
+    public void testExportAcceptsGzipOnlyWithAPositiveQuality() {
+        assertTrue(ReviewController.acceptsGzip("gzip"));
+        assertTrue(ReviewController.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertTrue(ReviewController.acceptsGzip("br, *"));
+        assertFalse(ReviewController.acceptsGzip("gzip;q=0"));
+        assertFalse(ReviewController.acceptsGzip("gzip; q=0.000, *"));
+        assertFalse(ReviewController.acceptsGzip("*, gzip;q=0"));
+        assertFalse(ReviewController.acceptsGzip("deflate"));
+        assertFalse(ReviewController.acceptsGzip(null));
+    }
+
+    @Test
+    public void testOnlyTheExportRunsWithoutAsyncTimeout() throws Exception {
+        exportRows(new ExportedReview(1, 7, 5, "Fine", "2023-11-05T12:30:15"));
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(reviewController)
+                .setAsyncRequestTimeout(30_000)
+                .build();
+
+        MvcResult result = mockMvc.perform(get("/reviews/export")).andExpect(request().asyncStarted()).andReturn();
+
+        assertEquals(-1, result.getRequest().getAsyncContext().getTimeout());
+    }
+
+    @Test
+    public void testExportReviewsRejectsUnknownFormat() {
+        ResponseEntity<StreamingResponseBody> response = reviewController.exportReviews(null, null, null, "xml", null, new MockHttpServletRequest());
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    public void testExportReviewsRejectsReversedDateRange() {
+        ResponseEntity<StreamingResponseBody> response = reviewController.exportReviews(null,
+                LocalDate.of(2023, 12, 1), LocalDate.of(2023, 11, 1), "csv", null, new MockHttpServletRequest());
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
 }
@@ -0,0 +1,96 @@
+package moro.bookapi.gutendex;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import moro.bookapi.model.BookDto;
+import moro.bookapi.storage.BookRating;
+import moro.bookapi.storage.ReviewStore;
+
+class BookCacheWarmerTests {
+
+    @TempDir
+    Path tempDir;
+
+    private ReviewStore reviewStore;
+
+    private RestTemplate restTemplate;
+
+    private BookMetadataCache cache;
+
+    private WarmupProperties properties;
+
+    private BookCacheWarmer warmer;
+
+    @BeforeEach
+    void setUp() {
+        reviewStore = mock(ReviewStore.class);
+        restTemplate = mock(RestTemplate.class);
+        cache = new BookMetadataCache(100);
+        properties = new WarmupProperties();
+        properties.setSnapshotFile(tempDir.resolve("hot-books.txt"));
+        properties.setTimeout(Duration.ofSeconds(5));
+        warmer = new BookCacheWarmer(reviewStore, new GutendexClient(restTemplate, cache), cache, properties);
+    }
+
+    private static String response(long... ids) {
+        StringBuilder results = new StringBuilder();
+        for (long id : ids) {
+            results.append(results.length() > 0 ? ", " : "")
+                    .append("{\"id\": ").append(id).append(", \"title\": \"Book ").append(id)
+                    .append("\", \"authors\": [], \"languages\": [\"en\"], \"download_count\": 1}");
+        }
+        return "{\"results\": [" + results + "]}";
+    }
+
+    @Test
+    void warmsSnapshotAndReviewedBooksInOneBatchTest() throws Exception {
+        Files.write(tempDir.resolve("hot-books.txt"), List.of("7", "1"));
+        when(reviewStore.findMostReviewed(anyInt())).thenReturn(List.of(new BookRating(1, 3.0, 10)));
+        when(reviewStore.findTopRated(anyInt())).thenReturn(List.of(new BookRating(2, 5.0, 1)));
+        when(restTemplate.getForObject("https://gutendex.com/books?ids=7,1,2", String.class)).thenReturn(response(7, 1, 2));
+
+        warmer.warmUp();
+
+        assertEquals(3, cache.size());
+        verify(restTemplate, times(1)).getForObject(anyString(), eq(String.class));
+    }
+
+    @Test
+    void upstreamFailureDoesNotFailStartupTest() throws Exception {
+        when(reviewStore.findMostReviewed(anyInt())).thenReturn(List.of(new BookRating(1, 3.0, 10)));
+        when(restTemplate.getForObject(anyString(), eq(String.class))).thenThrow(new RestClientException("Error"));
+
+        warmer.warmUp();
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void snapshotHoldsMostRecentlyUsedBooksTest() throws Exception {
+        for (long id = 1; id <= 3; id++) {
+            BookDto book = new BookDto();
+            book.setId(id);
+            cache.put(book);
+        }
+        cache.get(1);
+
+        warmer.writeSnapshot();
+
+        assertEquals(List.of("1", "3", "2"), Files.readAllLines(tempDir.resolve("hot-books.txt")));
+    }
+}
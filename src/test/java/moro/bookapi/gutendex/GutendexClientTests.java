@@ -0,0 +1,94 @@
+package moro.bookapi.gutendex;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestTemplate;
+
+import moro.bookapi.model.BookDto;
+
+class GutendexClientTests {
+
+    private RestTemplate restTemplate;
+
+    private BookMetadataCache cache;
+
+    private GutendexClient client;
+
+    @BeforeEach
+    void setUp() {
+        restTemplate = mock(RestTemplate.class);
+        cache = new BookMetadataCache(100);
+        client = new GutendexClient(restTemplate, cache);
+    }
+
+    private static String response(long... ids) {
+        List<String> results = new ArrayList<>();
+        for (long id : ids) {
+            results.add("{\"id\": " + id + ", \"title\": \"Book " + id + "\", \"authors\": [], " +
+                    "\"languages\": [\"en\"], \"download_count\": 1}");
+        }
+        return "{\"results\": [" + String.join(", ", results) + "]}";
+    }
+
+    @Test
+    void missesAreFetchedInChunksTest() {
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 40; id++) {
+            ids.add(id);
+        }
+        when(restTemplate.getForObject(anyString(), eq(String.class))).thenAnswer(invocation -> {
+            String url = invocation.getArgument(0);
+            long[] requested = Arrays.stream(url.substring(url.indexOf("ids=") + 4).split(","))
+                    .mapToLong(Long::parseLong)
+                    // Pretend the last book does not exist upstream
+                    .filter(id -> id != 40)
+                    .toArray();
+            return response(requested);
+        });
+
+        Map<Long, BookDto> books = client.findBooks(ids);
+
+        assertEquals(39, books.size());
+        assertEquals("Book 7", books.get(7L).getTitle());
+        verify(restTemplate, times(2)).getForObject(anyString(), eq(String.class));
+        assertEquals(39, cache.size());
+    }
+
+    @Test
+    void cachedBooksAreNotFetchedAgainTest() {
+        when(restTemplate.getForObject("https://gutendex.com/books?ids=1,2", String.class)).thenReturn(response(1, 2));
+        client.findBooks(List.of(1L, 2L));
+
+        Map<Long, BookDto> books = client.findBooks(List.of(2L, 1L));
+
+        assertEquals(2, books.size());
+        verify(restTemplate, times(1)).getForObject(anyString(), eq(String.class));
+    }
+
+    @Test
+    void cacheEvictsLeastRecentlyUsedTest() {
+        BookMetadataCache small = new BookMetadataCache(2);
+        for (long id = 1; id <= 3; id++) {
+            BookDto book = new BookDto();
+            book.setId(id);
+            small.put(book);
+            if (id == 2) {
+                small.get(1);
+            }
+        }
+
+        assertNotNull(small.get(1));
+        assertNull(small.get(2));
+        assertNotNull(small.get(3));
+    }
+}
@@ -0,0 +1,42 @@
+package moro.bookapi.model;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class ReviewTests {
+
+    // Configured like the one Spring MVC uses
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    void createdAtIsSetByTheServerTest() throws Exception {
+        LocalDateTime before = LocalDateTime.now();
+
+        Review review = objectMapper.readValue(
+                "{\"bookId\": 1, \"rating\": 5, \"reviewText\": \"Amazing book!\", \"timestamp\": \"2000-01-01T00:00:00\"}",
+                Review.class);
+
+        assertEquals(1L, review.bookId());
+        assertEquals(5, review.rating());
+        assertEquals("Amazing book!", review.reviewText());
+        assertFalse(review.createdAt().isBefore(before));
+    }
+
+    @Test
+    void createdAtIsWrittenAsTimestampTest() throws Exception {
+        Review review = new Review(1L, 4, "Good", LocalDateTime.of(2023, 11, 5, 12, 30));
+
+        Map<?, ?> json = objectMapper.readValue(objectMapper.writeValueAsString(review), Map.class);
+
+        assertEquals(Set.of("bookId", "rating", "reviewText", "timestamp"), json.keySet());
+        assertEquals("Good", json.get("reviewText"));
+    }
+}
@@ -0,0 +1,75 @@
+package moro.bookapi.search;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SearchPagePrefetcherTests {
+
+    private SearchPagePrefetcher prefetcher;
+
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        PrefetchProperties properties = new PrefetchProperties();
+        properties.setMinSamples(2);
+        // Prefetches run within served(), so every assertion sees them finished
+        prefetcher = new SearchPagePrefetcher(properties, Runnable::run);
+        loads = new AtomicInteger();
+    }
+
+    @AfterEach
+    void tearDown() {
+        prefetcher.shutdown();
+    }
+
+    private Map<String, Object> load(int page) {
+        loads.incrementAndGet();
+        return Map.of("page", page);
+    }
+
+    /**
+     * Serves a page like the controller does and returns what take() found.
+     */
+    private Map<String, Object> request(String title, int page) {
+        Map<String, Object> response = prefetcher.take(title, page);
+        prefetcher.served(title, page, true, () -> load(page + 1));
+        return response;
+    }
+
+    @Test
+    void nextPageIsPrefetchedOnceUsersPageThroughTest() {
+        assertNull(request("Gatsby", 1));
+        assertEquals(0, loads.get());
+
+        // Two pages served, one followed up: 50% reaches the threshold
+        assertNull(request("gatsby ", 2));
+
+        assertEquals(Map.of("page", 3), prefetcher.take("Gatsby", 3));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void queriesNobodyPagesThroughAreNotPrefetchedTest() {
+        for (int i = 0; i < 5; i++) {
+            request("Dracula", 1);
+        }
+
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    void prefetchedPageIsTakenOnlyOnceTest() {
+        request("Emma", 1);
+        request("Emma", 2);
+        assertNotNull(prefetcher.take("Emma", 3));
+
+        assertNull(prefetcher.take("Emma", 3));
+    }
+}
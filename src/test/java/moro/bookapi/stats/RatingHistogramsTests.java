@@ -0,0 +1,61 @@
+package moro.bookapi.stats;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import moro.bookapi.model.RatingStatsDto;
+import moro.bookapi.storage.ReviewStore;
+
+class RatingHistogramsTests {
+
+    private RatingHistograms histograms(Map<Long, long[]> counts) {
+        ReviewStore reviewStore = mock(ReviewStore.class);
+        when(reviewStore.countRatings()).thenReturn(counts);
+        return new RatingHistograms(reviewStore);
+    }
+
+    @Test
+    void statsAreBuiltFromStoredCountsTest() {
+        Map<Long, long[]> counts = new HashMap<>();
+        counts.put(1L, new long[] { 0, 0, 0, 2, 1, 1 });
+        RatingHistograms histograms = histograms(counts);
+
+        RatingStatsDto stats = histograms.stats(1);
+
+        assertEquals(4, stats.getReviewCount());
+        assertEquals(3.75, stats.getMean());
+        assertEquals(3.5, stats.getMedian());
+        assertEquals(Map.of("p25", 3, "p50", 3, "p75", 4, "p90", 5), stats.getPercentiles());
+        assertArrayEquals(new long[] { 0, 0, 0, 2, 1, 1 }, stats.getHistogram());
+    }
+
+    @Test
+    void recordedRatingsAreCountedTest() {
+        RatingHistograms histograms = histograms(new HashMap<>());
+
+        histograms.record(7, 1);
+        histograms.record(7, 4);
+
+        RatingStatsDto stats = histograms.stats(7);
+        assertEquals(2, stats.getReviewCount());
+        assertEquals(2.5, stats.getMean());
+        // Even count: halfway between the two middle ratings
+        assertEquals(2.5, stats.getMedian());
+        assertThrows(IllegalArgumentException.class, () -> histograms.record(7, 6));
+    }
+
+    @Test
+    void bookWithoutReviewsTest() {
+        RatingStatsDto stats = histograms(new HashMap<>()).stats(3);
+
+        assertEquals(0, stats.getReviewCount());
+        assertEquals(0, stats.getMean());
+        assertNull(stats.getMedian());
+        assertArrayEquals(new long[6], stats.getHistogram());
+    }
+}
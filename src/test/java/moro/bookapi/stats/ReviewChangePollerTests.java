@@ -0,0 +1,84 @@
+package moro.bookapi.stats;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import moro.bookapi.model.Review;
+import moro.bookapi.search.SearchPagePrefetcher;
+import moro.bookapi.storage.CachedReviewStore;
+import moro.bookapi.storage.JdbcReviewStore;
+import moro.bookapi.storage.ReviewChangeFeed;
+import moro.bookapi.storage.SqliteShards;
+import moro.bookapi.storage.StorageProperties;
+
+/**
+ * Instance A polls while instance B, using its own connections to the same
+ * SQLite file, takes the reviews.
+ */
+class ReviewChangePollerTests {
+
+    @TempDir
+    Path tempDir;
+
+    private SqliteShards shardsA;
+    private SqliteShards shardsB;
+    private CachedReviewStore storeA;
+    private JdbcReviewStore storeB;
+    private RatingHistograms histogramsA;
+    private TrendingCounters trendingA;
+    private SearchPagePrefetcher prefetcherA;
+    private ReviewChangePoller pollerA;
+
+    @BeforeEach
+    void setUp() {
+        String url = "jdbc:sqlite:" + tempDir.resolve("reviews.db");
+        shardsA = new SqliteShards(url, new StorageProperties());
+        shardsB = new SqliteShards(url, new StorageProperties());
+        storeA = new CachedReviewStore(new JdbcReviewStore(shardsA.get(0), "a"), 1 << 20, 4096);
+        storeB = new JdbcReviewStore(shardsB.get(0), "b");
+
+        ReviewChangeFeed feedA = new ReviewChangeFeed(shardsA, "a");
+        histogramsA = new RatingHistograms(storeA);
+        trendingA = new TrendingCounters(storeA);
+        prefetcherA = mock(SearchPagePrefetcher.class);
+        pollerA = new ReviewChangePoller(feedA, storeA, histogramsA, trendingA, prefetcherA, Duration.ofDays(1));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        shardsA.close();
+        shardsB.close();
+    }
+
+    @Test
+    void reviewsTakenByAnotherInstanceUpdateCountersAndCachesTest() {
+        storeA.save(new Review(1L, 5, "Local"));
+        histogramsA.record(1L, 5);
+        assertEquals(1, storeA.findByBookId(1L).size());
+
+        storeB.save(new Review(1L, 3, "Remote"));
+        storeB.save(new Review(2L, 4, "Remote"));
+        assertEquals(1, histogramsA.stats(1L).getReviewCount());
+
+        pollerA.poll();
+
+        assertArrayEquals(new long[] { 0, 0, 0, 1, 0, 1 }, histogramsA.stats(1L).getHistogram());
+        assertEquals(1, histogramsA.stats(2L).getReviewCount());
+        assertEquals(2, storeA.findByBookId(1L).size());
+        assertEquals(2, trendingA.top(TrendingWindow.DAY, 10).size());
+        verify(prefetcherA).invalidateBooks(Set.of(1L, 2L));
+
+        // Nothing new, nothing applied twice
+        pollerA.poll();
+        assertEquals(2, histogramsA.stats(1L).getReviewCount());
+    }
+}
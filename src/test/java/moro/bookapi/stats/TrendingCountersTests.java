@@ -0,0 +1,111 @@
+package moro.bookapi.stats;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import moro.bookapi.model.TrendingBookDto;
+import moro.bookapi.storage.ExportedReview;
+import moro.bookapi.storage.ReviewStore;
+
+class TrendingCountersTests {
+
+    private static final LocalDateTime START = LocalDateTime.of(2023, 11, 20, 12, 0);
+
+    private MutableClock clock;
+
+    private ReviewStore reviewStore;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(START.toInstant(ZoneOffset.UTC));
+        reviewStore = mock(ReviewStore.class);
+    }
+
+    private static List<Long> bookIds(List<TrendingBookDto> books) {
+        return books.stream().map(TrendingBookDto::getBookId).toList();
+    }
+
+    @Test
+    void ranksByReviewCountThenAverageTest() {
+        TrendingCounters counters = new TrendingCounters(reviewStore, clock);
+        counters.record(1, 3, START);
+        counters.record(2, 5, START);
+        counters.record(3, 4, START);
+        counters.record(3, 2, START);
+
+        List<TrendingBookDto> top = counters.top(TrendingWindow.DAY, 2);
+
+        assertEquals(List.of(3L, 2L), bookIds(top));
+        assertEquals(2, top.get(0).getReviewCount());
+        assertEquals(3.0, top.get(0).getAverageRating());
+    }
+
+    @Test
+    void reviewsExpireWithTheirBucketTest() {
+        TrendingCounters counters = new TrendingCounters(reviewStore, clock);
+        counters.record(1, 5, START);
+        clock.advance(Duration.ofHours(2));
+        counters.record(2, 5, START.plusHours(2));
+
+        clock.advance(Duration.ofHours(23));
+        counters.tick();
+
+        assertEquals(List.of(2L), bookIds(counters.top(TrendingWindow.DAY, 10)));
+        assertEquals(List.of(1L, 2L), bookIds(counters.top(TrendingWindow.WEEK, 10)));
+    }
+
+    @Test
+    void countersAreRebuiltFromStoredReviewsTest() {
+        doAnswer(invocation -> {
+            Consumer<ExportedReview> consumer = invocation.getArgument(1);
+            consumer.accept(new ExportedReview(1, 7, 4, "Recent", START.minusHours(1).toString()));
+            consumer.accept(new ExportedReview(2, 8, 5, "Last week", START.minusDays(3).toString()));
+            return null;
+        }).when(reviewStore).exportReviews(any(), any());
+
+        TrendingCounters counters = new TrendingCounters(reviewStore, clock);
+
+        assertEquals(List.of(7L), bookIds(counters.top(TrendingWindow.DAY, 10)));
+        assertEquals(List.of(8L, 7L), bookIds(counters.top(TrendingWindow.WEEK, 10)));
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package moro.bookapi.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import moro.bookapi.model.Review;
+import moro.bookapi.model.ReviewDto;
+
+class CachedReviewStoreTests {
+
+    private static final int BLOCK_SIZE = 64;
+
+    private ReviewStore delegate;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(ReviewStore.class);
+    }
+
+    private static ReviewDto review(int rating, String reviewText) {
+        ReviewDto reviewDto = new ReviewDto();
+        reviewDto.setRating(rating);
+        reviewDto.setReviewText(reviewText);
+        return reviewDto;
+    }
+
+    private static List<String> texts(List<ReviewDto> reviews) {
+        List<String> texts = new ArrayList<>();
+        for (ReviewDto review : reviews) {
+            texts.add(review.getRating() + ":" + review.getReviewText());
+        }
+        return texts;
+    }
+
+    @Test
+    void repeatedReadsAreServedFromTheCacheTest() {
+        // Long enough to span several blocks, with multi-byte characters on a block boundary
+        String longText = "x".repeat(BLOCK_SIZE - 9) + "Καλό βιβλίο ".repeat(20);
+        when(delegate.findByBookId(1L)).thenReturn(List.of(review(5, longText), review(0, null), review(3, "")));
+        CachedReviewStore store = new CachedReviewStore(delegate, 16 * BLOCK_SIZE, BLOCK_SIZE);
+
+        List<String> first = texts(store.findByBookId(1L));
+        List<String> second = texts(store.findByBookId(1L));
+
+        assertEquals(List.of("5:" + longText, "0:null", "3:"), first);
+        assertEquals(first, second);
+        verify(delegate, times(1)).findByBookId(1L);
+    }
+
+    @Test
+    void savedReviewsAreAppendedToCachedBooksTest() {
+        when(delegate.findByBookId(1L)).thenReturn(List.of(review(4, "First")));
+        CachedReviewStore store = new CachedReviewStore(delegate, 16 * BLOCK_SIZE, BLOCK_SIZE);
+        store.findByBookId(1L);
+
+        store.save(new Review(1L, 2, "Second"));
+        store.save(new Review(2L, 3, "Uncached book"));
+
+        assertEquals(List.of("4:First", "2:Second"), texts(store.findByBookId(1L)));
+        verify(delegate, times(1)).findByBookId(1L);
+        verify(delegate, times(2)).save(any());
+        assertEquals(1, store.cachedBooks());
+    }
+
+    @Test
+    void leastRecentlyReadBooksAreEvictedWhenTheBudgetIsFullTest() {
+        String text = "y".repeat(BLOCK_SIZE);
+        for (long bookId = 1; bookId <= 3; bookId++) {
+            when(delegate.findByBookId(bookId)).thenReturn(List.of(review(1, text)));
+        }
+        // Each book takes two blocks, so only two fit
+        CachedReviewStore store = new CachedReviewStore(delegate, 4 * BLOCK_SIZE, BLOCK_SIZE);
+
+        store.findByBookId(1L);
+        store.findByBookId(2L);
+        store.findByBookId(1L);
+        store.findByBookId(3L);
+        store.findByBookId(1L);
+        store.findByBookId(2L);
+
+        verify(delegate, times(1)).findByBookId(1L);
+        verify(delegate, times(2)).findByBookId(2L);
+        assertEquals(2, store.cachedBooks());
+    }
+
+    @Test
+    void booksLargerThanTheBudgetAreNotCachedTest() {
+        when(delegate.findByBookId(1L)).thenReturn(List.of(review(5, "z".repeat(4 * BLOCK_SIZE))));
+        CachedReviewStore store = new CachedReviewStore(delegate, 4 * BLOCK_SIZE, BLOCK_SIZE);
+
+        assertEquals(1, store.findByBookId(1L).size());
+        assertEquals(1, store.findByBookId(1L).size());
+
+        verify(delegate, times(2)).findByBookId(1L);
+        assertEquals(0, store.cachedBooks());
+    }
+}
@@ -0,0 +1,71 @@
+package moro.bookapi.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import moro.bookapi.model.Review;
+
+class JdbcReviewStoreTests {
+
+    @TempDir
+    Path tempDir;
+
+    private SqliteDatabase database;
+
+    private JdbcReviewStore store;
+
+    @BeforeEach
+    void setUp() {
+        database = new SqliteDatabase("jdbc:sqlite:" + tempDir.resolve("reviews.db"), new StorageProperties());
+        store = new JdbcReviewStore(database);
+        store.save(new Review(1L, 5, "October", LocalDateTime.of(2023, 10, 31, 23, 59)));
+        store.save(new Review(1L, 4, "November", LocalDateTime.of(2023, 11, 1, 0, 0)));
+        store.save(new Review(2L, 3, "Other book", LocalDateTime.of(2023, 11, 15, 12, 0)));
+        store.save(new Review(1L, 2, "December", LocalDateTime.of(2023, 12, 1, 0, 0)));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        database.close();
+    }
+
+    private List<String> export(ReviewFilter filter) {
+        List<String> texts = new ArrayList<>();
+        store.exportReviews(filter, review -> texts.add(review.reviewText()));
+        return texts;
+    }
+
+    @Test
+    void exportWithoutFilterReturnsEverythingInIdOrderTest() {
+        assertEquals(List.of("October", "November", "Other book", "December"), export(new ReviewFilter(null, null, null)));
+    }
+
+    @Test
+    void exportFiltersByBookAndDateRangeTest() {
+        ReviewFilter november = new ReviewFilter(1L, LocalDateTime.of(2023, 11, 1, 0, 0), LocalDateTime.of(2023, 12, 1, 0, 0));
+        assertEquals(List.of("November"), export(november));
+    }
+
+    @Test
+    void countRatingsPerBookTest() {
+        assertArrayEquals(new long[] { 0, 0, 1, 0, 1, 1 }, store.countRatings().get(1L));
+        assertArrayEquals(new long[] { 0, 0, 0, 1, 0, 0 }, store.countRatings().get(2L));
+    }
+
+    @Test
+    void findMostReviewedTest() {
+        List<BookRating> mostReviewed = store.findMostReviewed(2);
+
+        assertEquals(List.of(1L, 2L), mostReviewed.stream().map(BookRating::bookId).toList());
+        assertEquals(3, mostReviewed.get(0).reviewCount());
+    }
+}
@@ -0,0 +1,248 @@
+package moro.bookapi.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import moro.bookapi.model.RatingDto;
+import moro.bookapi.model.Review;
+
+class LoggedReviewStoreTests {
+
+    // Small enough that a handful of reviews spans several segments
+    private static final int SEGMENT_SIZE = 256;
+
+    // Long enough that nothing is compacted unless a test asks for it
+    private static final Duration NEVER = Duration.ofHours(1);
+
+    @TempDir
+    Path tempDir;
+
+    private SqliteDatabase database;
+
+    private JdbcReviewStore stored;
+
+    @BeforeEach
+    void setUp() {
+        database = new SqliteDatabase("jdbc:sqlite:" + tempDir.resolve("reviews.db"), new StorageProperties());
+        stored = new JdbcReviewStore(database);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        database.close();
+    }
+
+    private LoggedReviewStore openStore() throws Exception {
+        ReviewLog reviewLog = new ReviewLog(tempDir.resolve("log"), SEGMENT_SIZE, stored.getLogCheckpoint());
+        return new LoggedReviewStore(stored, reviewLog, NEVER, 2);
+    }
+
+    private int storedCount() {
+        return database.reader().queryForObject("SELECT COUNT(*) FROM reviews", Integer.class);
+    }
+
+    @Test
+    void readsIncludeReviewsNotYetCompactedTest() throws Exception {
+        LoggedReviewStore store = openStore();
+        stored.save(new Review(1L, 2, "Stored", LocalDateTime.of(2023, 11, 2, 10, 0)));
+        store.save(new Review(1L, 4, "Logged", LocalDateTime.of(2023, 11, 20, 10, 0)));
+        store.save(new Review(2L, 3, "Other book"));
+
+        assertEquals(1, storedCount());
+        assertEquals(2, store.findByBookId(1).size());
+        assertEquals(3.0, store.findRatings(List.of(1L)).get(1L).averageRating());
+        assertEquals(List.of(1L, 2L), store.findTopRated(2).stream().map(BookRating::bookId).toList());
+
+        List<RatingDto> months = store.findAverageRatingPerMonth(1);
+        assertEquals(1, months.size());
+        assertEquals(2, months.get(0).getReviewCount());
+        assertEquals(3.0, months.get(0).getAverageRating());
+        assertArrayEquals(new long[] { 0, 0, 1, 0, 1, 0 }, store.countRatings().get(1L));
+        store.close();
+    }
+
+    @Test
+    void compactionMovesReviewsIntoTheDatabaseTest() throws Exception {
+        LoggedReviewStore store = openStore();
+        for (int i = 0; i < 5; i++) {
+            store.save(new Review(1L, 5, "Review " + i));
+        }
+
+        store.compact();
+
+        assertEquals(5, storedCount());
+        assertEquals(5, stored.getLogCheckpoint());
+        assertEquals(5, store.findByBookId(1).size());
+        // Only the segment still being appended to survives
+        try (Stream<Path> segments = Files.list(tempDir.resolve("log"))) {
+            assertEquals(1, segments.count());
+        }
+        store.close();
+    }
+
+    @Test
+    void rejectedReviewsDoNotStallCompactionTest() throws Exception {
+        LoggedReviewStore store = openStore();
+        store.save(new Review(1L, 5, "Before"));
+        assertThrows(IllegalArgumentException.class, () -> store.save(new Review(null, 5, "No book")));
+        store.save(new Review(1L, 4, "After"));
+
+        store.compact();
+
+        assertEquals(2, storedCount());
+        assertEquals(2, stored.getLogCheckpoint());
+        store.close();
+    }
+
+    @Test
+    void sequencesThatAreNeverPublishedAreSkippedTest() throws Exception {
+        ReviewLog reviewLog = new ReviewLog(tempDir.resolve("log"), SEGMENT_SIZE, stored.getLogCheckpoint());
+        LoggedReviewStore store = new LoggedReviewStore(stored, reviewLog, NEVER, 2);
+        store.save(new Review(1L, 5, "Before"));
+        // An append that fails after taking its sequence
+        assertThrows(IllegalStateException.class, () -> reviewLog.append(new Review(1L, 1, "Lost"), sequence -> {
+            throw new IllegalStateException("Not published");
+        }));
+        store.save(new Review(1L, 4, "After"));
+
+        store.compact();
+
+        assertEquals(2, storedCount());
+        assertEquals(3, stored.getLogCheckpoint());
+        store.close();
+    }
+
+    @Test
+    void readsDoNotWaitWhileABatchIsBeingAppliedTest() throws Exception {
+        CountDownLatch applying = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        JdbcReviewStore slowDelegate = spy(stored);
+        doAnswer(invocation -> {
+            applying.countDown();
+            release.await();
+            return invocation.callRealMethod();
+        }).when(slowDelegate).applyLogBatch(anyList(), anyLong(), any());
+
+        ReviewLog reviewLog = new ReviewLog(tempDir.resolve("log"), SEGMENT_SIZE, stored.getLogCheckpoint());
+        LoggedReviewStore store = new LoggedReviewStore(slowDelegate, reviewLog, NEVER, 2);
+        store.save(new Review(1L, 5, "First"));
+        store.save(new Review(1L, 3, "Second"));
+
+        Thread compaction = new Thread(() -> {
+            try {
+                store.compact();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        compaction.start();
+        assertTrue(applying.await(5, TimeUnit.SECONDS));
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertEquals(2, store.findByBookId(1).size()));
+
+        release.countDown();
+        compaction.join();
+        assertEquals(2, storedCount());
+        assertEquals(2, store.findByBookId(1).size());
+        store.close();
+    }
+
+    @Test
+    void uncompactedReviewsAreReplayedAfterRestartTest() throws Exception {
+        LoggedReviewStore crashed = openStore();
+        LocalDateTime createdAt = LocalDateTime.of(2023, 11, 5, 12, 30, 15, 123456789);
+        for (int i = 0; i < 5; i++) {
+            crashed.save(new Review(1L, 4, i == 0 ? null : "Review " + i, createdAt));
+        }
+        // No close(): the process died before compacting
+
+        LoggedReviewStore restarted = openStore();
+        assertEquals(5, restarted.findByBookId(1).size());
+        restarted.compact();
+        restarted.save(new Review(1L, 1, "After restart"));
+        restarted.close();
+
+        assertEquals(6, storedCount());
+        assertEquals(createdAt, LocalDateTime.parse(database.reader().queryForObject(
+                "SELECT created_at FROM reviews WHERE review_text IS NULL", String.class)));
+    }
+
+    @Test
+    void instancesSharingADatabaseKeepTheirOwnCheckpointsTest() throws Exception {
+        try (SqliteDatabase otherDatabase = new SqliteDatabase("jdbc:sqlite:" + tempDir.resolve("reviews.db"), new StorageProperties())) {
+            JdbcReviewStore storedA = new JdbcReviewStore(database, "a");
+            JdbcReviewStore storedB = new JdbcReviewStore(otherDatabase, "b");
+            LoggedReviewStore storeA = new LoggedReviewStore(storedA,
+                    new ReviewLog(tempDir.resolve("log-a"), SEGMENT_SIZE, storedA.getLogCheckpoint()), NEVER, 10);
+            LoggedReviewStore storeB = new LoggedReviewStore(storedB,
+                    new ReviewLog(tempDir.resolve("log-b"), SEGMENT_SIZE, storedB.getLogCheckpoint()), NEVER, 10);
+
+            for (int i = 0; i < 3; i++) {
+                storeB.save(new Review(2L, 3, "From B"));
+            }
+            storeB.compact();
+            // Sequence 1 of A is below B's checkpoint, and still a review of its own
+            storeA.save(new Review(1L, 5, "From A"));
+            storeA.compact();
+
+            assertEquals(4, storedCount());
+            assertEquals(1, storedA.getLogCheckpoint());
+            assertEquals(3, storedB.getLogCheckpoint());
+            assertEquals(1, storeA.findByBookId(1L).size());
+            storeA.close();
+            storeB.close();
+        }
+    }
+
+    @Test
+    void nodeIdKeptInTheLogDirectoryOutlivesRestartsTest() throws Exception {
+        String nodeId = ReviewLog.nodeId(tempDir.resolve("log"));
+
+        assertEquals(nodeId, ReviewLog.nodeId(tempDir.resolve("log")));
+        assertNotEquals(nodeId, ReviewLog.nodeId(tempDir.resolve("other-log")));
+        // The id file is not mistaken for a segment
+        openStore().close();
+    }
+
+    @Test
+    void checkpointFromBeforeNodesGoesToTheFirstInstanceAskingTest() {
+        database.writer().update("INSERT INTO review_log_checkpoints (node_id, sequence) VALUES ('', 7)");
+
+        assertEquals(7, new JdbcReviewStore(database, "a").getLogCheckpoint());
+        assertEquals(0, new JdbcReviewStore(database, "b").getLogCheckpoint());
+        assertEquals(7, new JdbcReviewStore(database, "a").getLogCheckpoint());
+    }
+
+    @Test
+    void applyingTheSameBatchTwiceStoresItOnceTest() {
+        List<LoggedReview> batch = List.of(
+                new LoggedReview(1, new Review(1L, 5, "First")),
+                new LoggedReview(2, new Review(1L, 3, "Second")));
+
+        stored.applyLogBatch(batch, 2);
+        stored.applyLogBatch(batch, 2);
+
+        assertEquals(2, storedCount());
+        assertEquals(2, stored.getLogCheckpoint());
+    }
+}
@@ -0,0 +1,109 @@
+package moro.bookapi.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import moro.bookapi.model.Review;
+
+/**
+ * Two instances, each with its own connections, sharing one SQLite file.
+ */
+class ReviewChangeFeedTests {
+
+    @TempDir
+    Path tempDir;
+
+    private SqliteShards shardsA;
+    private SqliteShards shardsB;
+    private JdbcReviewStore storeA;
+    private JdbcReviewStore storeB;
+
+    @BeforeEach
+    void setUp() {
+        String url = "jdbc:sqlite:" + tempDir.resolve("reviews.db");
+        shardsA = new SqliteShards(url, new StorageProperties());
+        shardsB = new SqliteShards(url, new StorageProperties());
+        storeA = new JdbcReviewStore(shardsA.get(0), "a");
+        storeB = new JdbcReviewStore(shardsB.get(0), "b");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        shardsA.close();
+        shardsB.close();
+    }
+
+    private static List<ReviewChange> pollAll(ReviewChangeFeed feed) {
+        List<ReviewChange> changes = new ArrayList<>();
+        feed.poll(100, changes::addAll);
+        return changes;
+    }
+
+    @Test
+    void pollReturnsOnlyOtherInstancesChangesSinceTheLastPollTest() {
+        storeB.save(new Review(9L, 1, "Before the feed started"));
+        ReviewChangeFeed feedA = new ReviewChangeFeed(shardsA, "a");
+
+        storeA.save(new Review(1L, 5, "Own review"));
+        storeB.save(new Review(2L, 3, "Remote", LocalDateTime.of(2023, 11, 2, 10, 0)));
+
+        List<ReviewChange> changes = pollAll(feedA);
+        assertEquals(1, changes.size());
+        assertEquals(2L, changes.get(0).bookId());
+        assertEquals(3, changes.get(0).rating());
+        assertEquals(LocalDateTime.of(2023, 11, 2, 10, 0), changes.get(0).createdAt());
+
+        assertTrue(pollAll(feedA).isEmpty());
+        storeB.save(new Review(2L, 4, "Remote again"));
+        assertEquals(List.of(4), pollAll(feedA).stream().map(ReviewChange::rating).toList());
+    }
+
+    @Test
+    void compactedLogBatchesAreRecordedTooTest() {
+        ReviewChangeFeed feedA = new ReviewChangeFeed(shardsA, "a");
+
+        storeB.applyLogBatch(List.of(
+                new LoggedReview(1, new Review(1L, 2, "First")),
+                new LoggedReview(2, new Review(2L, 4, "Second"))), 2);
+
+        assertEquals(List.of(1L, 2L), pollAll(feedA).stream().map(ReviewChange::bookId).toList());
+    }
+
+    @Test
+    void pollReportsWhenMoreThanTheLimitIsPendingTest() {
+        ReviewChangeFeed feedA = new ReviewChangeFeed(shardsA, "a");
+        for (long bookId = 1; bookId <= 3; bookId++) {
+            storeB.save(new Review(bookId, 3, "Remote"));
+        }
+
+        List<ReviewChange> changes = new ArrayList<>();
+        assertTrue(feedA.poll(2, changes::addAll));
+        assertFalse(feedA.poll(2, changes::addAll));
+        assertEquals(List.of(1L, 2L, 3L), changes.stream().map(ReviewChange::bookId).toList());
+    }
+
+    @Test
+    void pruneKeepsIdsIncreasingTest() {
+        storeB.save(new Review(1L, 3, "Pruned"));
+        ReviewChangeFeed feedA = new ReviewChangeFeed(shardsA, "a");
+        assertEquals(1, feedA.prune(Duration.ofMillis(-1000)));
+
+        // A feed started on the emptied table must not mistake the next change for an old one
+        ReviewChangeFeed restarted = new ReviewChangeFeed(shardsA, "a");
+        storeB.save(new Review(2L, 4, "After pruning"));
+
+        List<ReviewChange> changes = pollAll(restarted);
+        assertEquals(1, changes.size());
+        assertEquals(2, changes.get(0).changeId());
+    }
+}
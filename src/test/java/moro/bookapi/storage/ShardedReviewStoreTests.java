@@ -0,0 +1,101 @@
+package moro.bookapi.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import moro.bookapi.model.Review;
+
+class ShardedReviewStoreTests {
+
+    @TempDir
+    Path tempDir;
+
+    private SqliteShards shards;
+
+    private ShardedReviewStore store;
+
+    @BeforeEach
+    void setUp() {
+        StorageProperties properties = new StorageProperties();
+        properties.setShards(3);
+        shards = new SqliteShards("jdbc:sqlite:" + tempDir.resolve("reviews.db"), properties);
+
+        List<JdbcReviewStore> stores = new ArrayList<>();
+        for (SqliteDatabase database : shards.all()) {
+            stores.add(new JdbcReviewStore(database));
+        }
+        store = new ShardedReviewStore(stores);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        store.close();
+        shards.close();
+    }
+
+    @Test
+    void shardFilesAreNamedAfterTheMainDatabaseTest() {
+        assertEquals("jdbc:sqlite:/data/mydatabase.db", SqliteShards.shardUrl("jdbc:sqlite:/data/mydatabase.db", 0));
+        assertEquals("jdbc:sqlite:/data/mydatabase-shard2.db", SqliteShards.shardUrl("jdbc:sqlite:/data/mydatabase.db", 2));
+    }
+
+    @Test
+    void reviewsAreOnlyWrittenToTheirShardTest() {
+        store.save(new Review(4L, 5, "Great"));
+        store.save(new Review(4L, 3, "Fine"));
+
+        assertEquals(2, store.findByBookId(4).size());
+        for (int i = 0; i < shards.size(); i++) {
+            Integer count = shards.get(i).reader().queryForObject("SELECT COUNT(*) FROM reviews", Integer.class);
+            assertEquals(i == store.shardOf(4) ? 2 : 0, count);
+        }
+    }
+
+    @Test
+    void exportedIdsAreUniqueAndAscendingAcrossShardsTest() {
+        for (long bookId = 1; bookId <= 9; bookId++) {
+            store.save(new Review(bookId, 3, "Review " + bookId));
+        }
+
+        List<Long> ids = new ArrayList<>();
+        store.exportReviews(new ReviewFilter(null, null, null), review -> ids.add(review.reviewId()));
+
+        assertEquals(9, ids.size());
+        assertEquals(ids.stream().sorted().distinct().toList(), ids);
+
+        List<Long> bookIds = new ArrayList<>();
+        store.exportReviews(new ReviewFilter(4L, null, null), review -> bookIds.add(review.reviewId()));
+        assertEquals(1, bookIds.size());
+        assertTrue(ids.contains(bookIds.get(0)));
+    }
+
+    @Test
+    void topRatedIsMergedAcrossShardsTest() {
+        for (long bookId = 1; bookId <= 9; bookId++) {
+            store.save(new Review(bookId, (int) (bookId % 6), "Review"));
+        }
+
+        List<BookRating> top = store.findTopRated(4);
+
+        assertEquals(List.of(5L, 4L, 3L, 9L), top.stream().map(BookRating::bookId).toList());
+        assertEquals(5.0, top.get(0).averageRating());
+    }
+
+    @Test
+    void mergeTopKStopsAtKTest() {
+        List<BookRating> first = List.of(new BookRating(1, 5, 1), new BookRating(2, 2, 1));
+        List<BookRating> second = List.of(new BookRating(3, 4, 1));
+
+        List<BookRating> merged = ShardedReviewStore.mergeTopK(List.of(first, List.of(), second), 2, BookRating.BEST_FIRST);
+
+        assertEquals(List.of(1L, 3L), merged.stream().map(BookRating::bookId).toList());
+    }
+}
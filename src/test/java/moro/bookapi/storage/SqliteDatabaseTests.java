@@ -0,0 +1,62 @@
+package moro.bookapi.storage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessException;
+
+class SqliteDatabaseTests {
+
+    @TempDir
+    Path tempDir;
+
+    private SqliteDatabase database;
+
+    @BeforeEach
+    void setUp() {
+        database = new SqliteDatabase("jdbc:sqlite:" + tempDir.resolve("test.db"), new StorageProperties());
+        database.writer().execute("CREATE TABLE reviews (book_id INTEGER, rating INTEGER)");
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        database.close();
+    }
+
+    @Test
+    void writerUsesWalJournalTest() {
+        assertEquals("wal", database.writer().queryForObject("PRAGMA journal_mode", String.class));
+    }
+
+    @Test
+    void readersAreQueryOnlyTest() {
+        assertThrows(DataAccessException.class,
+                () -> database.reader().update("INSERT INTO reviews (book_id, rating) VALUES (1, 5)"));
+    }
+
+    @Test
+    void readsDoNotWaitForOpenWriteTransactionTest() throws Exception {
+        database.writer().update("INSERT INTO reviews (book_id, rating) VALUES (1, 5)");
+
+        try (Connection writer = database.getWriteDataSource().getConnection();
+                Statement statement = writer.createStatement()) {
+            writer.setAutoCommit(false);
+            statement.executeUpdate("INSERT INTO reviews (book_id, rating) VALUES (1, 1)");
+
+            // Readers see the last committed snapshot instead of blocking on the writer's lock
+            long start = System.nanoTime();
+            Integer count = database.reader().queryForObject("SELECT COUNT(*) FROM reviews", Integer.class);
+            assertEquals(1, count);
+            assertTrue(System.nanoTime() - start < 1_000_000_000L);
+
+            writer.rollback();
+        }
+    }
+}